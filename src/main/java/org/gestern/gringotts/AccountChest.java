@@ -7,6 +7,7 @@ import java.util.regex.Pattern;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Chest;
@@ -25,6 +26,12 @@ import io.papermc.lib.PaperLib;
  */
 public class AccountChest {
 
+    /**
+     * Horizontal distance from the sign within which blocks may be part of the vault: the container attached to or
+     * below the sign and the other half of a double chest.
+     */
+    public static final int REACH = 2;
+
     private final Pattern VAULT_PATTERN = Pattern.compile(Configuration.CONF.vaultPattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
 
     public final String           id;
@@ -41,6 +48,38 @@ public class AccountChest {
 
     private long cachedBalance;
 
+    /**
+     * Whether the cached balance is part of the account's vault total, see {@link VaultTotals}.
+     */
+    private boolean tracked;
+
+    /**
+     * Cached result of {@link #notValid()}, or null if it needs to be checked again.
+     * Cleared by the events that can change the sign or its container, see {@link #invalidateValidity()}.
+     */
+    private volatile Boolean cachedNotValid;
+
+    /**
+     * Container block found for the sign during the last validity check.
+     */
+    private volatile Block containerBlock;
+
+    /**
+     * Whether the cached balance was adjusted from inventory events since it was last checked against the real
+     * contents of the chest.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Number of times the cached balance was verified against the real contents of the chest.
+     */
+    private int verifications;
+
+    /**
+     * Time of the last verification, in milliseconds since the epoch. 0 if never verified.
+     */
+    private volatile long lastVerified;
+
     /**
      * Create Account chest based on a sign marking its position and belonging to an account.
      *
@@ -68,7 +107,7 @@ public class AccountChest {
      * @return InventoryHolder for this account chest
      */
     public InventoryHolder chest() {
-        Block block = Util.chestBlock(sign);
+        Block block = containerBlock();
 
         if (block != null) {
             BlockState blockState = PaperLib.getBlockState(
@@ -81,16 +120,35 @@ public class AccountChest {
             }
         }
 
+        // the container changed without us noticing, check again on next use
+        cachedNotValid = null;
+
         return null;
     }
 
+    /**
+     * The container block of this account chest, resolved once per validity check.
+     *
+     * @return the container block, or null if the sign has none
+     */
+    private Block containerBlock() {
+        Block block = containerBlock;
+
+        if (block == null || !Util.isValidContainer(block.getType())) {
+            block = Util.chestBlock(sign);
+            containerBlock = block;
+        }
+
+        return block;
+    }
+
     /**
      * Location of the storage block of this account chest.
      *
      * @return Location of the storage block of this account chest.
      */
     public Location chestLocation() {
-        Block block = Util.chestBlock(sign);
+        Block block = containerBlock();
 
         return block != null ? block.getLocation() : null;
     }
@@ -123,6 +181,15 @@ public class AccountChest {
         return (inventoryHolder != null) ? inventoryHolder.getInventory() : null;
     }
 
+    /**
+     * Get inventory of this account chest for operating on it directly, after checking the vault is still valid.
+     *
+     * @return inventory of this AccountChest, or null if it has none or was invalid and removed from storage.
+     */
+    Inventory validInventory() {
+        return updateInvalid() ? null : inventory();
+    }
+
     /**
      * Get account inventory of this account chest, which is based on the container inventory.
      *
@@ -229,11 +296,54 @@ public class AccountChest {
      * Checks whether this chest is currently a valid vault.
      * It is considered valid when the sign block contains [vault] or [(type) vault] on the first line,
      * a name on the third line and has a chest associated with it.
+     * The result is cached until {@link #invalidateValidity()} is called.
      *
      * @return false if the chest can be considered a valid vault
      */
-    @SuppressWarnings("SimplifiableIfStatement")
     public boolean notValid() {
+        Boolean cached = cachedNotValid;
+
+        if (cached == null) {
+            cached = checkNotValid();
+            cachedNotValid = cached;
+        }
+
+        return cached;
+    }
+
+    /**
+     * Forget the cached validity of this chest, so that it is checked again on next use.
+     * Called whenever the sign or container of this chest may have changed.
+     */
+    public void invalidateValidity() {
+        cachedNotValid = null;
+        containerBlock = null;
+        containerLocations.clear();
+    }
+
+    /**
+     * Whether a change to the given block may affect the sign or container of this chest.
+     * The container is attached to or below the sign, and may be one half of a double chest.
+     *
+     * @param world world of the changed block
+     * @param x     x coordinate of the changed block
+     * @param y     y coordinate of the changed block
+     * @param z     z coordinate of the changed block
+     * @return true if the block is close enough to the sign to be part of this vault
+     */
+    public boolean isNear(World world, int x, int y, int z) {
+        int dy = y - sign.getY();
+
+        return Math.abs(x - sign.getX()) <= REACH
+                && Math.abs(z - sign.getZ()) <= REACH
+                && dy >= -1 && dy <= 0
+                && sign.getWorld().equals(world);
+    }
+
+    @SuppressWarnings("SimplifiableIfStatement")
+    private boolean checkNotValid() {
+        containerBlock = null;
+
         // is it still a sign?
         if (!Util.isSignBlock(sign.getBlock())) {
             return true;
@@ -421,7 +531,14 @@ public class AccountChest {
     }
 
     public void setCachedBalance(long amount) {
+        long delta = amount - cachedBalance;
+
         cachedBalance = amount;
+
+        if (tracked) {
+            Gringotts.instance.getVaultTotals().add(account, delta);
+        }
+
         Gringotts.instance.getDao().updateChestBalance(this, cachedBalance);
     }
 
@@ -429,6 +546,98 @@ public class AccountChest {
         return cachedBalance;
     }
 
+    /**
+     * Set whether the cached balance is part of the account's vault total.
+     *
+     * @return true if the state changed
+     */
+    boolean setTracked(boolean tracked) {
+        boolean changed = this.tracked != tracked;
+
+        this.tracked = tracked;
+
+        return changed;
+    }
+
+    /**
+     * Record a change that was applied directly to this chest's inventory through {@link #validInventory()}.
+     *
+     * @param delta value that was added to (positive) or removed from (negative) the chest
+     */
+    void contentsChanged(long delta) {
+        if (delta != 0) {
+            setCachedBalance(cachedBalance + delta);
+        }
+    }
+
+    /**
+     * Adjust the cached balance by the value of items that moved in or out of the chest, without rescanning it.
+     * The chest is marked for verification against its real contents.
+     *
+     * @param delta value that was added to (positive) or removed from (negative) the chest
+     */
+    public void adjustCachedBalance(long delta) {
+        dirty = true;
+
+        if (delta != 0) {
+            setCachedBalance(cachedBalance + delta);
+        }
+    }
+
+    /**
+     * Mark the cached balance as possibly out of date, to be checked against the real contents of the chest.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Whether the cached balance was adjusted from inventory events since it was last verified.
+     *
+     * @return true if the cached balance should be verified
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Rescan the chest and correct the cached balance if it differs from the real contents.
+     *
+     * @return the real balance of this chest
+     */
+    public long verifyBalance() {
+        long realBalance = balance(true);
+
+        if (realBalance != cachedBalance) {
+            setCachedBalance(realBalance);
+        }
+
+        dirty = false;
+        verifications++;
+        lastVerified = System.currentTimeMillis();
+
+        return realBalance;
+    }
+
+    /**
+     * Time the cached balance was last verified against the real contents of the chest.
+     *
+     * @return time of the last verification in milliseconds since the epoch, 0 if never verified
+     */
+    public long getLastVerified() {
+        return lastVerified;
+    }
+
+    /**
+     * Number of times the cached balance was verified. Changes observed before a verification and applied after it
+     * are already part of the verified balance.
+     *
+     * @return the number of verifications of this chest
+     */
+    public int getVerifications() {
+        return verifications;
+    }
+
     private void emitPendingOperation(long amount) {
         Gringotts.instance.getPendingOperationManager()
             .registerNewOperation(new EBeanPendingOperation(this, amount));
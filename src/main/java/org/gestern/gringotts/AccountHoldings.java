@@ -0,0 +1,425 @@
+package org.gestern.gringotts;
+
+import org.bukkit.inventory.Inventory;
+import org.gestern.gringotts.api.TransactionResult;
+import org.gestern.gringotts.currency.GringottsCurrency;
+import org.gestern.gringotts.data.DAO;
+import org.gestern.gringotts.maintenance.VaultConsolidator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Snapshot of everything an account holds: its vaults, the owner's inventory and enderchest, and the virtual cents
+ * reserve. Every container is read once; withdrawals and deposits are planned on the snapshot and then applied to
+ * each container in a single pass.
+ * <p>
+ * Must be captured and used on the main thread, and only for one operation. The cents reserve is read from memory,
+ * as callers off the main thread load it before handing the operation over. With relaxed reads, each change publishes
+ * the account's new balance snapshot from the holdings it just changed, without reading any container again.
+ */
+class AccountHoldings {
+    private final GringottsAccount  account;
+    private final DAO               dao;
+    private final GringottsCurrency currency;
+    private final List<Holding>     holdings = new ArrayList<>();
+    private final long              storedCents;
+    private       long              cents;
+    private       Holding           inventory;
+    private       Holding           enderchest;
+    private       int               vaultCount;
+
+    private AccountHoldings(GringottsAccount account, DAO dao) {
+        this.account = account;
+        this.dao = dao;
+        this.currency = Configuration.CONF.getCurrency();
+        this.storedCents = dao.retrieveCents(account);
+        this.cents = storedCents;
+    }
+
+    /**
+     * Read all containers of an account.
+     *
+     * @param account account to capture
+     * @return snapshot of the account's holdings
+     */
+    static AccountHoldings capture(GringottsAccount account) {
+        AccountHoldings          snapshot = new AccountHoldings(account, Gringotts.instance.getDao());
+        Collection<AccountChest> chests   = account.chests();
+
+        snapshot.vaultCount = chests.size();
+
+        if (Configuration.CONF.useVaultContainer) {
+            for (AccountChest chest : chests) {
+                if (!chest.isChestLoaded()) {
+                    snapshot.holdings.add(new Holding(chest, null, snapshot.currency));
+                    continue;
+                }
+
+                Inventory inventory = chest.validInventory();
+
+                if (inventory != null) {
+                    snapshot.holdings.add(new Holding(chest, inventory, snapshot.currency));
+                }
+            }
+        }
+
+        account.playerOwner().ifPresent(player -> {
+            if (Permissions.USE_VAULT_INVENTORY.isAllowed(player)) {
+                snapshot.inventory = new Holding(null, player.getInventory(), snapshot.currency);
+                snapshot.holdings.add(snapshot.inventory);
+            }
+
+            if (Configuration.CONF.useVaultEnderChest && Permissions.USE_VAULT_ENDERCHEST.isAllowed(player)) {
+                snapshot.enderchest = new Holding(null, player.getEnderChest(), snapshot.currency);
+                snapshot.holdings.add(snapshot.enderchest);
+            }
+        });
+
+        return snapshot;
+    }
+
+    /**
+     * Total value of the holdings in cents.
+     *
+     * @return total value of the holdings in cents
+     */
+    long total() {
+        long total = cents;
+
+        for (Holding holding : holdings) {
+            total += holding.value();
+        }
+
+        return total;
+    }
+
+    /**
+     * Remove a value from the holdings. Whole items are taken largest denomination first across all containers,
+     * then from unloaded vaults. A remainder is taken from the cents reserve if it is smaller than any denomination,
+     * otherwise one item of the smallest sufficient denomination is broken and the change put back. Shulker boxes
+     * and the cents reserve cover whatever is left.
+     * <p>
+     * Change that fits in no container is dropped at the owner's feet if overflowing items are dropped. Otherwise the
+     * withdrawal is refused before anything is changed. Only the part of the change that is smaller than any
+     * denomination is kept in the reserve, except for change from a shulker box, which is only known once the box
+     * was changed.
+     *
+     * @param amount value to remove
+     * @return {@link TransactionResult#SUCCESS}, or the reason the withdrawal was refused, in which case nothing was
+     * changed
+     */
+    TransactionResult withdraw(long amount) {
+        if (total() < amount) {
+            return TransactionResult.INSUFFICIENT_FUNDS;
+        }
+
+        long remaining = amount;
+
+        remaining = takeWholeItems(remaining);
+
+        for (Holding holding : holdings) {
+            if (remaining <= 0) {
+                break;
+            }
+
+            if (holding.pending()) {
+                holding.pendingTake = Math.min(holding.pendingValue, remaining);
+                remaining -= holding.pendingTake;
+            }
+        }
+
+        boolean fromReserve = remaining < smallestDenominationValue() && remaining <= cents;
+
+        if (remaining > 0 && !fromReserve) {
+            remaining = breakItem(remaining);
+        }
+
+        if (-remaining >= smallestDenominationValue() && !account.canDropOverflow()) {
+            return TransactionResult.INSUFFICIENT_SPACE;
+        }
+
+        for (Holding holding : holdings) {
+            holding.apply();
+        }
+
+        // the holdings read the shulker setting once, boxes are only known if it was on
+        if (!fromReserve) {
+            for (Holding holding : holdings) {
+                if (remaining <= 0) {
+                    break;
+                }
+
+                if (holding.shulkerValue() > 0) {
+                    long removed = holding.shulkers.remove(remaining);
+                    holding.shulkersChanged(-removed);
+                    remaining -= removed;
+                }
+            }
+        }
+
+        if (remaining < 0) {
+            remaining += account.dropOverflow(-remaining);
+        }
+
+        // take what cannot be represented in items from the reserve, or keep change too small for any item
+        cents -= remaining;
+
+        changed();
+
+        return TransactionResult.SUCCESS;
+    }
+
+    /**
+     * Add a value to the holdings, filling containers in order. The cents reserve is merged into the deposit, and
+     * whatever is smaller than the smallest denomination is kept there.
+     *
+     * @param amount value to add
+     * @return value that did not fit anywhere
+     */
+    long deposit(long amount) {
+        long remaining = amount + cents;
+
+        for (Holding holding : holdings) {
+            if (remaining <= 0) {
+                break;
+            }
+
+            if (holding.pending()) {
+                long added = holding.chest.add(remaining);
+                holding.pendingValue += added;
+                remaining -= added;
+                continue;
+            }
+
+            remaining -= holding.place(remaining);
+            holding.apply();
+
+            if (holding.shulkers != null && remaining > 0) {
+                long added = holding.shulkers.add(remaining);
+                holding.shulkersChanged(added);
+                remaining -= added;
+            }
+        }
+
+        if (remaining < smallestDenominationValue()) {
+            cents = remaining;
+            remaining = 0;
+        } else {
+            // keep what is left of the old reserve, the rest did not fit
+            cents = Math.min(storedCents, remaining);
+            remaining -= cents;
+        }
+
+        changed();
+
+        return remaining;
+    }
+
+    /**
+     * Change the cents reserve without touching any container. Used when a value can be neither placed in nor taken
+     * from items; the reserve may then go below zero, which later deposits settle first.
+     *
+     * @param value value to add to the reserve, negative to take it
+     */
+    void adjustReserve(long value) {
+        cents += value;
+
+        changed();
+    }
+
+    /**
+     * Take whole items from the loaded containers, largest denomination first across all of them.
+     *
+     * @return remaining value to take
+     */
+    private long takeWholeItems(long remaining) {
+        int denominations = currency.getDenominations().size();
+
+        for (int d = 0; d < denominations && remaining > 0; d++) {
+            for (Holding holding : holdings) {
+                if (holding.pending()) {
+                    continue;
+                }
+
+                long value = holding.slots.denominationValue(d);
+
+                if (value <= 0 || value > remaining) {
+                    break;
+                }
+
+                long take = Math.min(holding.slots.count(d), remaining / value);
+
+                if (take > 0) {
+                    holding.slots.take(d, take);
+                    holding.delta -= take * value;
+                    remaining -= take * value;
+                }
+            }
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Break one item of the smallest denomination that covers the remainder, putting the change back into the same
+     * container or, failing that, any other. Change that fits nowhere is returned as a negative remainder.
+     *
+     * @return remaining value to take, negative if change is left over
+     */
+    private long breakItem(long remaining) {
+        int denominations = currency.getDenominations().size();
+
+        for (int d = denominations - 1; d >= 0; d--) {
+            for (Holding holding : holdings) {
+                if (holding.pending() || holding.slots.count(d) == 0) {
+                    continue;
+                }
+
+                long value = holding.slots.denominationValue(d);
+
+                if (value < remaining) {
+                    break;
+                }
+
+                holding.slots.take(d, 1);
+                holding.delta -= value;
+
+                long change = value - remaining;
+
+                change -= holding.place(change);
+
+                for (Holding other : holdings) {
+                    if (change <= 0) {
+                        break;
+                    }
+
+                    if (other != holding && !other.pending()) {
+                        change -= other.place(change);
+                    }
+                }
+
+                return -change;
+            }
+        }
+
+        return remaining;
+    }
+
+    private long smallestDenominationValue() {
+        return currency.getSmallestDenominationValue();
+    }
+
+    /**
+     * Store the cents reserve if it changed, and publish the account's balance snapshot from the changed holdings.
+     */
+    private void changed() {
+        if (cents != storedCents) {
+            dao.storeCents(account, cents);
+        }
+
+        if (account.relaxedReads()) {
+            long vaults = 0;
+
+            for (Holding holding : holdings) {
+                if (holding.chest != null) {
+                    vaults += holding.value();
+                }
+            }
+
+            Gringotts.instance.getBalanceSnapshots().publish(
+                    account,
+                    cents,
+                    vaults,
+                    inventory != null ? inventory.value() : 0,
+                    enderchest != null ? enderchest.value() : 0,
+                    vaultCount
+            );
+        }
+    }
+
+    /**
+     * One container of an account: a loaded inventory with its slot snapshot, or an unloaded vault known only by its
+     * cached balance.
+     */
+    private static final class Holding {
+        final AccountChest           chest;
+        final Inventory              inventory;
+        final AccountInventory.Slots slots;
+        /**
+         * Shulker boxes of the inventory, read once with the holding. Null if shulker boxes are not included.
+         */
+        final AccountShulkerBoxes    shulkers;
+        long                         pendingValue;
+        /**
+         * Value planned to be taken from an unloaded vault, taken by {@link #apply()}.
+         */
+        long                         pendingTake;
+        long                         delta;
+
+        Holding(AccountChest chest, Inventory inventory, GringottsCurrency currency) {
+            this.chest = chest;
+            this.inventory = inventory;
+
+            if (inventory == null) {
+                this.slots = null;
+                this.shulkers = null;
+                this.pendingValue = chest.getCachedBalance();
+            } else {
+                this.slots = new AccountInventory.Slots(inventory, currency);
+                this.shulkers = Configuration.CONF.includeShulkerBoxes ? new AccountShulkerBoxes(inventory) : null;
+            }
+        }
+
+        long shulkerValue() {
+            return shulkers != null ? shulkers.balance() : 0;
+        }
+
+        boolean pending() {
+            return slots == null;
+        }
+
+        long value() {
+            return pending() ? pendingValue : slots.value() + shulkerValue();
+        }
+
+        long place(long value) {
+            long added = slots.add(value);
+            delta += added;
+
+            return added;
+        }
+
+        void shulkersChanged(long delta) {
+            if (chest != null) {
+                chest.contentsChanged(delta);
+            }
+        }
+
+        void apply() {
+            if (pending()) {
+                if (pendingTake > 0) {
+                    pendingValue -= chest.remove(pendingTake);
+                    pendingTake = 0;
+                }
+
+                return;
+            }
+
+            slots.apply();
+
+            if (chest != null) {
+                chest.contentsChanged(delta);
+
+                VaultConsolidator consolidator = Gringotts.instance.getVaultConsolidator();
+
+                if (consolidator != null) {
+                    consolidator.check(chest, slots.usedSlots(), slots.size());
+                }
+            }
+
+            delta = 0;
+        }
+    }
+}
@@ -2,11 +2,11 @@ package org.gestern.gringotts;
 
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.gestern.gringotts.currency.ChangeMaker;
 import org.gestern.gringotts.currency.Denomination;
 import org.gestern.gringotts.currency.GringottsCurrency;
 
 import java.util.List;
-import java.util.ListIterator;
 
 /**
  * Account inventories define operations that can be used on all inventories belonging to an account.
@@ -22,6 +22,8 @@ public class AccountInventory {
 
     /**
      * Current balance of this inventory in cents (or rather atomic currency units).
+     * Only the storage slots are counted, the same ones that items are added to and removed from, so armor and
+     * off-hand slots of a player inventory hold no money.
      *
      * @return current balance of this inventory in cents
      */
@@ -29,7 +31,7 @@ public class AccountInventory {
         GringottsCurrency cur = Configuration.CONF.getCurrency();
         long count = 0;
 
-        for (ItemStack stack : inventory) {
+        for (ItemStack stack : inventory.getStorageContents()) {
             count += cur.getValue(stack);
         }
 
@@ -45,44 +47,22 @@ public class AccountInventory {
      * @return amount actually added
      */
     public long add(long value) {
-        long remaining = value;
-
-        // try denominations from largest to smallest
-        for (Denomination denomination : Configuration.CONF.getCurrency().getDenominations()) {
-            if (denomination.getValue() <= remaining && denomination.getValue() > 0) {
-                ItemStack stack = new ItemStack(denomination.getKey().type);
-                int stackSize = stack.getMaxStackSize();
-                long denItemCount = remaining / denomination.getValue();
-
-                // add stacks in this denomination until stuff is returned
-                while (denItemCount > 0) {
-                    int remainderStackSize = denItemCount > stackSize ? stackSize : (int) denItemCount;
-                    stack.setAmount(remainderStackSize);
-
-                    int returned = 0;
-                    for (ItemStack leftover : inventory.addItem(stack).values()) {
-                        returned += leftover.getAmount();
-                    }
-
-                    // reduce remaining amount by whatever was deposited
-                    long added = (long) remainderStackSize - returned;
+        if (value <= 0) {
+            return 0;
+        }
 
-                    denItemCount -= added;
-                    remaining -= added * denomination.getValue();
+        Slots slots = slots();
+        long added = slots.add(value);
 
-                    // no more space for this denomination
-                    if (returned > 0) {
-                        break;
-                    }
-                }
-            }
-        }
+        slots.apply();
 
-        return value - remaining;
+        return added;
     }
 
     /**
      * Remove items from this inventory corresponding to given value.
+     * If the value cannot be paid exactly, one item of the smallest sufficient denomination is broken and the change
+     * is put back. Should the change not fit, the returned value is larger than requested.
      *
      * @param value amount to remove
      * @return value actually removed
@@ -94,42 +74,426 @@ public class AccountInventory {
             return 0;
         }
 
-        GringottsCurrency cur = Configuration.CONF.getCurrency();
-        long remaining = value;
+        Slots slots = slots();
+        long removed = slots.remove(value);
+
+        slots.apply();
+
+        return removed;
+    }
+
+    /**
+     * Merge plain denomination items into as few items as possible, keeping the value unchanged.
+     * The inventory is only changed if that frees up slots.
+     *
+     * @return true if the inventory was changed
+     */
+    public boolean consolidate() {
+        Slots slots = slots();
+
+        if (!slots.consolidate()) {
+            return false;
+        }
+
+        slots.apply();
+
+        return true;
+    }
+
+    /**
+     * Read the storage contents of this inventory into a slot snapshot.
+     *
+     * @return snapshot of the currency held in this inventory's slots
+     */
+    Slots slots() {
+        return new Slots(inventory, Configuration.CONF.getCurrency());
+    }
+
+    /**
+     * Snapshot of an inventory's storage slots, reduced to primitive arrays of denomination and amount.
+     * Inventory contents are read once on creation, all planning happens on the arrays, and changed slots are written
+     * back in a single {@link Inventory#setStorageContents(ItemStack[])} call by {@link #apply()}.
+     */
+    static final class Slots {
+        /**
+         * Marker for an empty slot.
+         */
+        private static final int EMPTY = -1;
+        /**
+         * Marker for a slot holding something that is not currency.
+         */
+        private static final int OTHER = -2;
+
+        private final Inventory inventory;
+        private final ItemStack[] contents;
+
+        /**
+         * Denominations of the currency, largest first.
+         */
+        private final Denomination[] denominations;
+        private final long[] values;
+        private final int[] maxStack;
+        private final ChangeMaker changeMaker;
+        /**
+         * Number of items held per denomination.
+         */
+        private final long[] counts;
+
+        /**
+         * Denomination index of each slot, or {@link #EMPTY}/{@link #OTHER}.
+         */
+        private final int[] slotDenomination;
+        private final int[] amounts;
+        /**
+         * Whether the slot holds exactly the denomination's item, so that more of it may be stacked on.
+         */
+        private final boolean[] stackable;
+        private final boolean[] changed;
+        private boolean modified;
+
+        Slots(Inventory inventory, GringottsCurrency cur) {
+            this.inventory = inventory;
+            this.contents = inventory.getStorageContents();
+
+            List<Denomination> denoms = cur.getDenominations();
+            int stackLimit = inventory.getMaxStackSize();
+
+            this.denominations = denoms.toArray(new Denomination[0]);
+            this.values = new long[denominations.length];
+            this.maxStack = new int[denominations.length];
+            this.counts = new long[denominations.length];
+            this.changeMaker = cur.getChangeMaker();
+
+            for (int d = 0; d < denominations.length; d++) {
+                values[d] = denominations[d].getValue();
+                maxStack[d] = Math.min(denominations[d].getKey().type.getMaxStackSize(), stackLimit);
+            }
+
+            this.slotDenomination = new int[contents.length];
+            this.amounts = new int[contents.length];
+            this.stackable = new boolean[contents.length];
+            this.changed = new boolean[contents.length];
+
+            for (int i = 0; i < contents.length; i++) {
+                ItemStack item = contents[i];
+
+                if (item == null || item.getType().isAir() || item.getAmount() <= 0) {
+                    slotDenomination[i] = EMPTY;
+                    continue;
+                }
+
+                Denomination denomination = cur.getDenominationOf(item);
+                int d = denomination == null ? -1 : cur.indexOf(denomination);
+
+                if (d < 0) {
+                    slotDenomination[i] = OTHER;
+                    continue;
+                }
+
+                slotDenomination[i] = d;
+                amounts[i] = item.getAmount();
+                stackable[i] = denomination.getKey().type.isSimilar(item);
+                counts[d] += amounts[i];
+            }
+        }
+
+        /**
+         * Slots holding nothing but plain denomination items and other things, without an inventory to apply them to.
+         * Used to plan on slot contents that were not read from an inventory.
+         *
+         * @param values           denomination values in cents, largest first
+         * @param maxStack         stack size per denomination
+         * @param slotDenomination denomination index of each slot, -1 for an empty slot or -2 for anything else
+         * @param amounts          number of items in each slot
+         */
+        Slots(long[] values, int[] maxStack, int[] slotDenomination, int[] amounts) {
+            this.inventory = null;
+            this.contents = new ItemStack[slotDenomination.length];
+            this.denominations = new Denomination[values.length];
+            this.values = values.clone();
+            this.maxStack = maxStack.clone();
+            this.counts = new long[values.length];
+            this.changeMaker = new ChangeMaker(values);
+
+            this.slotDenomination = slotDenomination.clone();
+            this.amounts = amounts.clone();
+            this.stackable = new boolean[slotDenomination.length];
+            this.changed = new boolean[slotDenomination.length];
+
+            for (int i = 0; i < slotDenomination.length; i++) {
+                int d = slotDenomination[i];
+
+                if (d >= 0) {
+                    stackable[i] = true;
+                    counts[d] += amounts[i];
+                }
+            }
+        }
+
+        /**
+         * Value of the currency items in the slots, in cents. Shulker boxes are not included.
+         *
+         * @return value of the currency items in the slots
+         */
+        long value() {
+            long value = 0;
+
+            for (int d = 0; d < values.length; d++) {
+                value += counts[d] * values[d];
+            }
+
+            return value;
+        }
+
+        /**
+         * Number of denominations of the currency the slots were read with.
+         */
+        int denominationCount() {
+            return values.length;
+        }
+
+        /**
+         * Value of one item of a denomination, in cents.
+         *
+         * @param d index of the denomination, largest first
+         */
+        long denominationValue(int d) {
+            return values[d];
+        }
+
+        /**
+         * Number of items of a denomination currently in the slots.
+         *
+         * @param d index of the denomination, largest first
+         */
+        long count(int d) {
+            return counts[d];
+        }
+
+        /**
+         * Number of items in a slot.
+         *
+         * @param slot index of the slot
+         */
+        int amount(int slot) {
+            return amounts[slot];
+        }
+
+        /**
+         * Number of storage slots.
+         */
+        int size() {
+            return amounts.length;
+        }
+
+        /**
+         * Number of storage slots holding anything.
+         */
+        int usedSlots() {
+            int used = 0;
+
+            for (int denomination : slotDenomination) {
+                if (denomination != EMPTY) {
+                    used++;
+                }
+            }
+
+            return used;
+        }
+
+        /**
+         * Take out all plain denomination items and place their value again in as few items as possible. Items that
+         * only loosely match a denomination, such as renamed ones, are left alone.
+         *
+         * @return true if the value is unchanged and fewer slots are in use, so that the result is worth applying
+         */
+        boolean consolidate() {
+            int usedBefore = usedSlots();
+            long value = 0;
+
+            for (int i = 0; i < amounts.length; i++) {
+                int d = slotDenomination[i];
+
+                if (d >= 0 && stackable[i]) {
+                    value += amounts[i] * values[d];
+                    counts[d] -= amounts[i];
+                    amounts[i] = 0;
+                    slotDenomination[i] = EMPTY;
+                    stackable[i] = false;
+                    contents[i] = null;
+                    changed[i] = true;
+                }
+            }
+
+            modified = true;
+
+            return add(value) == value && usedSlots() < usedBefore;
+        }
+
+        /**
+         * Place items worth the given value in as few items as possible. If not all of them fit, the rest is filled
+         * up largest denominations first.
+         *
+         * @param value value to add
+         * @return value actually added
+         */
+        long add(long value) {
+            long[] split = new long[values.length];
+            long unpaid = changeMaker.split(value, split);
+            long remaining = value - unpaid;
+
+            for (int d = 0; d < values.length; d++) {
+                if (split[d] > 0) {
+                    remaining -= place(d, split[d]) * values[d];
+                }
+            }
+
+            // whatever did not fit as planned is filled up with what still fits
+            for (int d = 0; d < values.length && remaining > 0; d++) {
+                if (values[d] > 0 && values[d] <= remaining) {
+                    remaining -= place(d, remaining / values[d]) * values[d];
+                }
+            }
+
+            return value - unpaid - remaining;
+        }
+
+        /**
+         * Take items worth the given value. Whole items are taken largest first; a remainder is paid by breaking one
+         * item of the smallest denomination that covers it and placing the change back.
+         *
+         * @param value value to remove
+         * @return value actually removed, larger than requested if the change did not fit
+         */
+        long remove(long value) {
+            long remaining = value;
+            long[] take = new long[values.length];
+
+            for (int d = 0; d < values.length && remaining > 0; d++) {
+                if (values[d] > 0) {
+                    take[d] = Math.min(counts[d], remaining / values[d]);
+                    remaining -= take[d] * values[d];
+                }
+            }
+
+            long change = 0;
+
+            if (remaining > 0) {
+                for (int d = values.length - 1; d >= 0; d--) {
+                    if (values[d] >= remaining && counts[d] > take[d]) {
+                        take[d]++;
+                        change = values[d] - remaining;
+                        remaining = 0;
+                        break;
+                    }
+                }
+            }
+
+            for (int d = 0; d < values.length; d++) {
+                if (take[d] > 0) {
+                    take(d, take[d]);
+                }
+            }
+
+            long removed = value - remaining + change;
+
+            if (change > 0) {
+                removed -= add(change);
+            }
+
+            return removed;
+        }
 
-        // try denominations from smallest to largest
-        List<Denomination> denominations = cur.getDenominations();
-        for (ListIterator<Denomination> it = denominations.listIterator(denominations.size()); it.hasPrevious(); ) {
-            Denomination denomination = it.previous();
-            ItemStack stack = new ItemStack(denomination.getKey().type);
-            int stackSize = stack.getMaxStackSize();
+        /**
+         * Write all changed slots back to the inventory.
+         */
+        void apply() {
+            if (!modified) {
+                return;
+            }
+
+            for (int i = 0; i < contents.length; i++) {
+                if (!changed[i]) {
+                    continue;
+                }
+
+                if (amounts[i] <= 0) {
+                    contents[i] = null;
+                } else {
+                    ItemStack base = contents[i] != null ? contents[i] : denominations[slotDenomination[i]].getKey().type;
+                    ItemStack item = base.clone();
+                    item.setAmount(amounts[i]);
+                    contents[i] = item;
+                }
+            }
 
-            // take 1 more than necessary if it doesn't round. add the extra later
-            long denItemCount = (long) Math.ceil((double) remaining / denomination.getValue());
+            inventory.setStorageContents(contents);
+            modified = false;
+        }
 
-            // add stacks in this denomination until stuff is returned or we are done
-            while (denItemCount > 0) {
-                int remainderStackSize = denItemCount > stackSize ? stackSize : (int) denItemCount;
-                stack.setAmount(remainderStackSize);
+        /**
+         * Put up to count items of a denomination into the slots, topping up existing stacks before using empty slots.
+         *
+         * @return number of items placed
+         */
+        private long place(int d, long count) {
+            long remaining = count;
 
-                int returned = 0;
+            for (int i = 0; i < amounts.length && remaining > 0; i++) {
+                if (slotDenomination[i] == d && stackable[i] && amounts[i] < maxStack[d]) {
+                    int n = (int) Math.min(remaining, maxStack[d] - amounts[i]);
+                    amounts[i] += n;
+                    changed[i] = true;
+                    remaining -= n;
+                }
+            }
 
-                for (ItemStack leftover : inventory.removeItem(stack).values()) {
-                    returned += leftover.getAmount();
+            for (int i = 0; i < amounts.length && remaining > 0; i++) {
+                if (slotDenomination[i] == EMPTY) {
+                    int n = (int) Math.min(remaining, maxStack[d]);
+                    slotDenomination[i] = d;
+                    stackable[i] = true;
+                    contents[i] = null;
+                    amounts[i] = n;
+                    changed[i] = true;
+                    remaining -= n;
                 }
+            }
+
+            long placed = count - remaining;
+
+            counts[d] += placed;
+            modified |= placed > 0;
 
-                // reduce remaining amount by whatever was removed
-                long removed = (long) remainderStackSize - returned;
-                denItemCount -= removed;
-                remaining -= removed * denomination.getValue();
+            return placed;
+        }
+
+        /**
+         * Take count items of a denomination from the slots, in slot order.
+         *
+         * @param d     index of the denomination, largest first
+         * @param count number of items to take, at most {@link #count(int)}
+         */
+        void take(int d, long count) {
+            long remaining = count;
 
-                // stuff was returned, no more items of this type to take
-                if (returned > 0) {
-                    break;
+            for (int i = 0; i < amounts.length && remaining > 0; i++) {
+                if (slotDenomination[i] == d) {
+                    int n = (int) Math.min(remaining, amounts[i]);
+                    amounts[i] -= n;
+                    changed[i] = true;
+                    remaining -= n;
+
+                    if (amounts[i] == 0) {
+                        slotDenomination[i] = EMPTY;
+                        stackable[i] = false;
+                        contents[i] = null;
+                    }
                 }
             }
 
+            counts[d] -= count - remaining;
+            modified = true;
         }
-        return value - remaining;
     }
 }
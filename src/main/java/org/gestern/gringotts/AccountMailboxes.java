@@ -0,0 +1,140 @@
+package org.gestern.gringotts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serial executors per account, sharing one pool of worker threads. Operations on the same account run one after
+ * another in submission order, while operations on different accounts run concurrently.
+ * <p>
+ * Each account's mailbox is the future of its last submitted operation; a new operation is chained onto it. An
+ * operation on several accounts, such as a transfer, waits for the previous operation of each of them and is the
+ * next one they all wait for. Only this bookkeeping takes a shared lock, never the operations themselves. Mailboxes
+ * of accounts without outstanding operations are removed.
+ */
+public class AccountMailboxes {
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+    private final Map<Key, CompletableFuture<?>> tails = new HashMap<>();
+    private final ExecutorService                workers;
+
+    /**
+     * Create the mailboxes with a fixed number of worker threads.
+     *
+     * @param threads number of worker threads
+     */
+    public AccountMailboxes(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+
+        this.workers = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+            Thread thread = new Thread(() -> {
+                WORKER.set(true);
+                r.run();
+            }, "Gringotts account worker #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Whether the current thread is running an account operation. Operations started from there run right away,
+     * since waiting for the workers from one of them could wait forever.
+     *
+     * @return true on a worker thread
+     */
+    public static boolean isWorker() {
+        return WORKER.get();
+    }
+
+    /**
+     * Run an operation after all operations previously submitted for any of the given accounts.
+     *
+     * @param accounts the accounts the operation works on
+     * @param task     operation to run
+     * @param <V>      result type of the operation
+     * @return completed with the operation's result once it ran
+     */
+    public <V> CompletableFuture<V> submit(List<GringottsAccount> accounts, Callable<V> task) {
+        Set<Key>             keys   = new LinkedHashSet<>();
+        CompletableFuture<V> result = new CompletableFuture<>();
+
+        for (GringottsAccount account : accounts) {
+            keys.add(new Key(account));
+        }
+
+        CompletableFuture<Void> tail;
+
+        // the operation is chained onto all of its accounts at once, so that operations on overlapping accounts
+        // are ordered the same way in every mailbox
+        synchronized (tails) {
+            List<CompletableFuture<?>> previous = new ArrayList<>(keys.size());
+
+            for (Key key : keys) {
+                CompletableFuture<?> last = tails.get(key);
+
+                if (last != null) {
+                    previous.add(last);
+                }
+            }
+
+            // previous operations always complete normally, their outcome is in their own result
+            tail = CompletableFuture.allOf(previous.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }, workers);
+
+            for (Key key : keys) {
+                tails.put(key, tail);
+            }
+        }
+
+        tail.whenComplete((ignored, error) -> {
+            synchronized (tails) {
+                for (Key key : keys) {
+                    tails.remove(key, tail);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Run all submitted operations and stop the worker threads.
+     */
+    public void shutdown() {
+        List<CompletableFuture<?>> outstanding;
+
+        synchronized (tails) {
+            outstanding = new ArrayList<>(tails.values());
+        }
+
+        try {
+            CompletableFuture.allOf(outstanding.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Gringotts.instance.getLogger().warning("Timed out waiting for account operations to finish.");
+        }
+
+        workers.shutdown();
+    }
+
+    private record Key(String type, String id) {
+        Key(GringottsAccount account) {
+            this(account.owner.getType(), account.owner.getId());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.gestern.gringotts;
+
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.gestern.gringotts.currency.GringottsCurrency;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Money operations on the shulker boxes held in the storage slots of an inventory.
+ * <p>
+ * The boxes are read once when this is created: each box's item meta is deserialized a single time and its money
+ * content is kept along with it for as long as this object is used. Removals only open boxes that hold currency, and
+ * a box's item meta is only written back when the box's contents actually changed.
+ * <p>
+ * Meant for a single operation on the main thread. Other changes to the boxes are not seen.
+ */
+public class AccountShulkerBoxes {
+    private final Inventory inventory;
+    private final List<Box> boxes = new ArrayList<>();
+    private long            balance;
+
+    public AccountShulkerBoxes(Inventory inventory) {
+        this.inventory = inventory;
+
+        GringottsCurrency cur      = Configuration.CONF.getCurrency();
+        ItemStack[]       contents = inventory.getStorageContents();
+
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack stack = contents[slot];
+
+            if (GringottsCurrency.isShulkerBox(stack)
+                    && stack.getItemMeta() instanceof BlockStateMeta blockState
+                    && blockState.getBlockState() instanceof ShulkerBox shulkerBox) {
+                long value = 0;
+
+                for (ItemStack content : shulkerBox.getInventory().getContents()) {
+                    value += cur.getValue(content);
+                }
+
+                boxes.add(new Box(slot, stack, blockState, shulkerBox, value));
+                balance += value;
+            }
+        }
+    }
+
+    /**
+     * Current balance of the shulker boxes in this inventory in cents.
+     *
+     * @return current balance of the shulker boxes in this inventory in cents
+     */
+    public long balance() {
+        return balance;
+    }
+
+    /**
+     * Add items to the shulker boxes of this inventory corresponding to given value.
+     *
+     * @param value value to add
+     * @return amount actually added
+     */
+    public long add(long value) {
+        long remaining = value;
+
+        for (Box box : boxes) {
+            if (remaining <= 0) {
+                break;
+            }
+
+            remaining -= transfer(box, remaining, true);
+        }
+
+        return value - remaining;
+    }
+
+    /**
+     * Remove items from the shulker boxes of this inventory corresponding to given value.
+     * Boxes holding no currency are skipped.
+     *
+     * @param value amount to remove
+     * @return value actually removed
+     */
+    public long remove(long value) {
+        long remaining = value;
+
+        for (Box box : boxes) {
+            if (remaining <= 0) {
+                break;
+            }
+
+            if (box.value > 0) {
+                remaining -= transfer(box, remaining, false);
+            }
+        }
+
+        return value - remaining;
+    }
+
+    /**
+     * Move value into or out of a single shulker box, writing it back only if anything moved.
+     *
+     * @param box    the shulker box
+     * @param value  value to move
+     * @param adding true to add to the box, false to remove from it
+     * @return value actually moved
+     */
+    private long transfer(Box box, long value, boolean adding) {
+        AccountInventory contents = new AccountInventory(box.shulkerBox.getInventory());
+        long             moved    = adding ? contents.add(value) : contents.remove(value);
+
+        if (moved == 0) {
+            return 0;
+        }
+
+        box.blockState.setBlockState(box.shulkerBox);
+        box.stack.setItemMeta(box.blockState);
+        // the slot is written explicitly, other contents of the inventory may have been replaced since it was read
+        inventory.setItem(box.slot, box.stack);
+
+        box.value += adding ? moved : -moved;
+        balance += adding ? moved : -moved;
+
+        return moved;
+    }
+
+    /**
+     * A shulker box with its deserialized contents and their money value.
+     */
+    private static final class Box {
+        final int            slot;
+        final ItemStack      stack;
+        final BlockStateMeta blockState;
+        final ShulkerBox     shulkerBox;
+        long                 value;
+
+        Box(int slot, ItemStack stack, BlockStateMeta blockState, ShulkerBox shulkerBox, long value) {
+            this.slot = slot;
+            this.stack = stack;
+            this.blockState = blockState;
+            this.shulkerBox = shulkerBox;
+            this.value = value;
+        }
+    }
+}
@@ -50,7 +50,6 @@ public class Accounting {
      *
      * @param chest chest to add to the account
      * @return false if the specified AccountChest is already registered or would be connected to a registered chest. true if the association was successful.
-     * @throws GringottsStorageException when saving of account chest failed
      */
     public boolean addChest(AccountChest chest) {
         // TODO refactor to do a more intelligent/quick query
@@ -60,16 +59,16 @@ public class Accounting {
         if (allChests.contains(chest)) {
             Gringotts.instance.getLogger().info("removing orphaned vault: " + chest);
             Gringotts.instance.getDao().deleteAccountChest(chest);
-            allChests.remove(chest);
+
+            // the retrieved chests are a snapshot, get the ones left after deleting
+            allChests = Gringotts.instance.getDao().retrieveChests();
         }
 
         if (chestConnected(chest, allChests)) {
             return false;
         }
 
-        if (!Gringotts.instance.getDao().storeAccountChest(chest)) {
-            throw new GringottsStorageException("Could not save account chest: " + chest);
-        }
+        Gringotts.instance.getDao().storeAccountChest(chest);
 
         return true;
     }
@@ -0,0 +1,40 @@
+package org.gestern.gringotts;
+
+/**
+ * Immutable view of an account's balance at one point in time, published on the main thread and readable from any
+ * thread.
+ *
+ * @param cents      virtual cents reserve
+ * @param vaults     balance of all vaults
+ * @param inventory  balance of the owner's inventory
+ * @param enderchest balance of the owner's enderchest
+ * @param vaultCount number of vaults
+ * @param version    number of snapshots published for the account so far
+ * @param timestamp  time the snapshot was taken, in milliseconds since the epoch
+ */
+public record BalanceSnapshot(long cents,
+                              long vaults,
+                              long inventory,
+                              long enderchest,
+                              int vaultCount,
+                              long version,
+                              long timestamp) {
+
+    /**
+     * Total balance of the account in cents.
+     *
+     * @return total balance of the account in cents
+     */
+    public long total() {
+        return cents + vaults + inventory + enderchest;
+    }
+
+    /**
+     * Time since the snapshot was taken.
+     *
+     * @return age of the snapshot in milliseconds
+     */
+    public long age() {
+        return System.currentTimeMillis() - timestamp;
+    }
+}
@@ -0,0 +1,67 @@
+package org.gestern.gringotts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latest balance snapshot of each account, for relaxed reads. Snapshots are replaced as a whole, so readers never
+ * see a partially updated balance.
+ */
+public class BalanceSnapshots {
+    private final ConcurrentMap<Key, BalanceSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Latest snapshot of an account.
+     *
+     * @param account the account
+     * @return the latest snapshot, or null if none was published yet
+     */
+    public BalanceSnapshot get(GringottsAccount account) {
+        return snapshots.get(new Key(account));
+    }
+
+    /**
+     * Publish a new snapshot of an account.
+     *
+     * @param account    the account
+     * @param cents      virtual cents reserve
+     * @param vaults     balance of all vaults
+     * @param inventory  balance of the owner's inventory
+     * @param enderchest balance of the owner's enderchest
+     * @param vaultCount number of vaults
+     * @return the published snapshot
+     */
+    public BalanceSnapshot publish(GringottsAccount account,
+                                   long cents,
+                                   long vaults,
+                                   long inventory,
+                                   long enderchest,
+                                   int vaultCount) {
+        long now = System.currentTimeMillis();
+
+        return snapshots.compute(new Key(account), (key, previous) -> new BalanceSnapshot(
+                cents,
+                vaults,
+                inventory,
+                enderchest,
+                vaultCount,
+                previous == null ? 1 : previous.version() + 1,
+                now
+        ));
+    }
+
+    /**
+     * Forget the snapshot of an account, for instance after it was deleted.
+     *
+     * @param account the account
+     */
+    public void forget(GringottsAccount account) {
+        snapshots.remove(new Key(account));
+    }
+
+    private record Key(String type, String id) {
+        Key(GringottsAccount account) {
+            this(account.owner.getType(), account.owner.getId());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.gestern.gringotts;
+
+import org.gestern.gringotts.accountholder.BankAccountHolder;
+import org.gestern.gringotts.accountholder.BankAccountHolderProvider;
+import org.gestern.gringotts.data.DAO;
+import org.gestern.gringotts.data.EBeanBankMember;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of banks and their owners and members, loaded from storage on first use. Lookups never touch the
+ * database; changes are written through to it.
+ * <p>
+ * Bank balances are not kept here, they live in the {@link VirtualLedger} like those of other virtual accounts.
+ */
+public class BankRegistry {
+    private final    DAO               dao;
+    private volatile Map<String, Bank> banks;
+
+    public BankRegistry(DAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Whether a bank with the given name exists.
+     *
+     * @param name name of the bank
+     * @return true if the bank exists
+     */
+    public boolean exists(String name) {
+        return banks().containsKey(name);
+    }
+
+    /**
+     * Names of all banks.
+     *
+     * @return names of all banks
+     */
+    public Set<String> names() {
+        return Set.copyOf(banks().keySet());
+    }
+
+    /**
+     * Create a bank with its first owner.
+     *
+     * @param name  name of the bank
+     * @param owner UUID of the owning player
+     * @return false if a bank with this name already exists
+     */
+    public boolean create(String name, UUID owner) {
+        Bank bank = new Bank();
+
+        if (banks().putIfAbsent(name, bank) != null) {
+            return false;
+        }
+
+        Gringotts.instance.getAccounting().getAccount(new BankAccountHolder(name));
+        addOwner(name, owner);
+
+        return true;
+    }
+
+    /**
+     * Delete a bank, its memberships and its account.
+     *
+     * @param name name of the bank
+     * @return false if there was no such bank
+     */
+    public boolean delete(String name) {
+        if (banks().remove(name) == null) {
+            return false;
+        }
+
+        GringottsAccount account = new GringottsAccount(new BankAccountHolder(name));
+
+        Gringotts.instance.getVirtualLedger().forget(account);
+        dao.deleteBankMembers(name);
+        dao.deleteAccount(account);
+
+        return true;
+    }
+
+    /**
+     * Make a player owner of a bank. Owners are members as well.
+     *
+     * @param name   name of the bank
+     * @param player UUID of the player
+     * @return false if there is no such bank
+     */
+    public boolean addOwner(String name, UUID player) {
+        Bank bank = banks().get(name);
+
+        if (bank == null) {
+            return false;
+        }
+
+        bank.owners.add(player);
+        bank.members.add(player);
+        dao.storeBankMember(name, player.toString(), true);
+
+        return true;
+    }
+
+    /**
+     * Make a player member of a bank.
+     *
+     * @param name   name of the bank
+     * @param player UUID of the player
+     * @return false if there is no such bank
+     */
+    public boolean addMember(String name, UUID player) {
+        Bank bank = banks().get(name);
+
+        if (bank == null) {
+            return false;
+        }
+
+        if (bank.members.add(player)) {
+            dao.storeBankMember(name, player.toString(), false);
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether a player owns a bank.
+     *
+     * @param name   name of the bank
+     * @param player UUID of the player
+     * @return true if the bank exists and the player owns it
+     */
+    public boolean isOwner(String name, UUID player) {
+        Bank bank = banks().get(name);
+
+        return bank != null && bank.owners.contains(player);
+    }
+
+    /**
+     * Whether a player is a member of a bank.
+     *
+     * @param name   name of the bank
+     * @param player UUID of the player
+     * @return true if the bank exists and the player is a member or owner
+     */
+    public boolean isMember(String name, UUID player) {
+        Bank bank = banks().get(name);
+
+        return bank != null && bank.members.contains(player);
+    }
+
+    private Map<String, Bank> banks() {
+        Map<String, Bank> loaded = banks;
+
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = banks;
+
+                if (loaded == null) {
+                    Map<String, Bank> found = new ConcurrentHashMap<>();
+
+                    dao.forEachAccount(BankAccountHolderProvider.TYPE, name -> found.put(name, new Bank()));
+                    dao.forEachBankMember(membership -> addMember(found, membership));
+
+                    loaded = found;
+                    banks = loaded;
+                }
+            }
+        }
+
+        return loaded;
+    }
+
+    private static void addMember(Map<String, Bank> banks, EBeanBankMember membership) {
+        Bank bank = banks.get(membership.getBank());
+
+        if (bank == null) {
+            return;
+        }
+
+        try {
+            UUID member = UUID.fromString(membership.getMember());
+
+            bank.members.add(member);
+
+            if (membership.isOwner()) {
+                bank.owners.add(member);
+            }
+        } catch (IllegalArgumentException e) {
+            Gringotts.instance.getLogger().warning("Invalid member of bank " + membership.getBank()
+                    + ": " + membership.getMember());
+        }
+    }
+
+    private static final class Bank {
+        final Set<UUID> owners  = ConcurrentHashMap.newKeySet();
+        final Set<UUID> members = ConcurrentHashMap.newKeySet();
+    }
+}
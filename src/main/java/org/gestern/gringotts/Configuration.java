@@ -16,6 +16,10 @@ import java.util.logging.Logger;
 /**
  * Singleton for global configuration information.
  * Values are initialized when the plugin is enabled.
+ * <p>
+ * Only the currency is published as one immutable snapshot. The other settings are volatile fields that a reload
+ * assigns one by one, so a reader racing a reload sees each setting either old or new, but may see old and new
+ * settings mixed. Code that needs several settings to agree must read them once and use them for the whole operation.
  *
  * @author jast
  */
@@ -32,63 +36,109 @@ public enum Configuration {
      * Regular expression defining what patterns on a sign will create a valid vault.
      * Subpattern 1 denotes the type of the vault.
      */
-    public String vaultPattern        = "[^\\[]*\\[(\\w*) ?vault\\]";
+    public volatile String vaultPattern        = "[^\\[]*\\[(\\w*) ?vault\\]";
     /**
      * Language to be used for messages. Should be an ISO 639-1 (alpha-2) code.
      * If a language is not supported by Gringotts, use user-configured or default (English) messages.
      */
-    public String language            = "custom";
+    public volatile String language            = "custom";
 
-    public boolean dropOverflowingItem = false;
+    public volatile boolean dropOverflowingItem = false;
 
     /**
      *
      * Check only CustomModelData for compatibility with different plugins.
      *
      */
-    public boolean custommodeldataOnly = false;
+    public volatile boolean custommodeldataOnly = false;
 
     /**
      * Flat tax on every player-to-player transaction. This is a value in currency units.
      */
-    public double transactionTaxFlat = 0;
+    public volatile double transactionTaxFlat = 0;
     /**
      * Rate tax on every player-to-player transaction. This is a fraction, e.g. 0.1 means 10% tax.
      */
-    public double transactionTaxRate = 0;
+    public volatile double transactionTaxRate = 0;
     /**
      * Amount of non-physical money to give to new players
      */
     // An alternative to flooding new players' inventories with currency items
-    public long   startBalancePlayer = 0;
+    public volatile long   startBalancePlayer = 0;
     /**
      * Use container vaults (chest, dispenser, furnace).
      */
-    public boolean useVaultContainer = true;
+    public volatile boolean useVaultContainer = true;
     /**
      * Use ender chests as player vaults.
      */
-    public boolean useVaultEnderChest = true;
+    public volatile boolean useVaultEnderChest = true;
     /**
      * Balance command shows vault balance.
      */
-    public boolean balanceShowVault = true;
+    public volatile boolean balanceShowVault = true;
     /**
      * Balance command shows inventory balance.
      */
-    public boolean balanceShowInventory = true;
+    public volatile boolean balanceShowInventory = true;
     /**
      * Balance command shows enderchest balance
      */
-    public boolean balanceShowEnderchest = true;
+    public volatile boolean balanceShowEnderchest = true;
+    /**
+     * Answer balance reads from the latest balance snapshot instead of waiting for the main thread.
+     */
+    public volatile boolean relaxedReads = false;
+    /**
+     * Maximum age of a balance snapshot in milliseconds before a read refreshes it on the main thread.
+     */
+    public volatile long relaxedReadsMaxStaleness = 1000;
     /**
      * if true, the denomination finding process will include shulker boxes
      */
-    public boolean includeShulkerBoxes = true;
+    public volatile boolean includeShulkerBoxes = true;
+    /**
+     * Seconds after which a vault's cached balance is checked against its real contents again. Vaults adjusted from
+     * inventory events are checked first. 0 disables the checks.
+     */
+    public volatile long vaultVerificationInterval = 60;
+    /**
+     * Microseconds per tick spent checking vault balances.
+     */
+    public volatile long vaultAuditBudget = 250;
+    /**
+     * Merge small denomination items in crowded vaults into larger ones in the background.
+     */
+    public volatile boolean vaultConsolidation = false;
+    /**
+     * Share of a vault's slots that must be in use before it is consolidated.
+     */
+    public volatile double vaultConsolidationThreshold = 0.75;
     /**
-     * Currency configuration.
+     * Maximum number of vaults consolidated per tick.
      */
-    private GringottsCurrency currency;
+    public volatile int vaultConsolidationPerTick = 2;
+    /**
+     * World group of each configured world. Empty if vaults are not partitioned by world.
+     */
+    public volatile Map<String, String> worldGroups = Collections.emptyMap();
+    /**
+     * Record completed transactions in the transaction journal.
+     */
+    public volatile boolean journalEnabled = true;
+    /**
+     * Number of transactions per journal segment file.
+     */
+    public volatile int journalSegmentRecords = 65536;
+    /**
+     * Number of journal segment files kept before the oldest is deleted.
+     */
+    public volatile int journalMaxSegments = 16;
+    /**
+     * Currency configuration. Built and compiled completely before it is published here, so readers always see
+     * either the old or the new currency, never one that is being built.
+     */
+    private volatile GringottsCurrency currency;
 
     /**
      * Attempt to identify an item by name. Prefers to use built-in Minecraft names,
@@ -157,11 +207,16 @@ public enum Configuration {
         String currencyNameSingular, currencyNamePlural;
         currencyNameSingular = Util.translateColors(savedConfig.getString("currency.name.singular", "Emerald"));
         currencyNamePlural   = Util.translateColors(savedConfig.getString("currency.name.plural", currencyNameSingular + "s"));
-        currency             = new GringottsCurrency(currencyNameSingular, currencyNamePlural, digits, namedDenominations);
+        GringottsCurrency newCurrency = new GringottsCurrency(currencyNameSingular, currencyNamePlural, digits, namedDenominations);
 
         // regular currency configuration (multi-denomination)
         ConfigurationSection denomSection = savedConfig.getConfigurationSection("currency.denominations");
-        parseCurrency(denomSection, savedConfig);
+        parseCurrency(newCurrency, denomSection, savedConfig);
+        newCurrency.compile();
+
+        currency = newCurrency;
+
+        // settings below are published one at a time, see the class documentation
 
         CONF.dropOverflowingItem = savedConfig.getBoolean("drop-overflowing-item", false);
 
@@ -175,25 +230,79 @@ public enum Configuration {
         CONF.useVaultContainer   = savedConfig.getBoolean("usevault.container", true);
         CONF.includeShulkerBoxes = savedConfig.getBoolean("usevault.include-shulker-boxes", true);
 
+        CONF.vaultVerificationInterval = savedConfig.getLong("usevault.verification-interval", 60);
+        CONF.vaultAuditBudget          = savedConfig.getLong("usevault.audit-budget", 250);
+
+        CONF.vaultConsolidation          = savedConfig.getBoolean("usevault.consolidation.enabled", false);
+        CONF.vaultConsolidationThreshold = savedConfig.getDouble("usevault.consolidation.slot-usage", 0.75);
+        CONF.vaultConsolidationPerTick   = savedConfig.getInt("usevault.consolidation.vaults-per-tick", 2);
+
+        CONF.worldGroups = parseWorldGroups(savedConfig.getConfigurationSection("world-groups"));
+
+        CONF.journalEnabled        = savedConfig.getBoolean("journal.enabled", true);
+        CONF.journalSegmentRecords = savedConfig.getInt("journal.segment-records", 65536);
+        CONF.journalMaxSegments    = savedConfig.getInt("journal.max-segments", 16);
+
         CONF.balanceShowInventory  = savedConfig.getBoolean("balance.show-inventory", true);
         CONF.balanceShowVault      = savedConfig.getBoolean("balance.show-vault", true);
         CONF.balanceShowEnderchest = savedConfig.getBoolean("balance.show-enderchest", true);
 
+        CONF.relaxedReads             = savedConfig.getBoolean("balance.relaxed-reads.enabled", false);
+        CONF.relaxedReadsMaxStaleness = savedConfig.getLong("balance.relaxed-reads.max-staleness", 1000);
+
         CONF.language = savedConfig.getString("language", "custom");
 
         CONF.vaultPattern        = savedConfig.getString("vault_pattern", "[^\\[]*\\[(\\w*) ?vault\\]");
     }
 
+    /**
+     * Read the world groups section, mapping every listed world to the name of its group.
+     *
+     * @param groupSection config section listing the worlds of each group, or null if there is none
+     * @return unmodifiable map of world names to group names
+     */
+    private Map<String, String> parseWorldGroups(ConfigurationSection groupSection) {
+        if (groupSection == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> groups = new HashMap<>();
+
+        for (String group : groupSection.getKeys(false)) {
+            for (String world : groupSection.getStringList(group)) {
+                String previous = groups.put(world, group);
+
+                if (previous != null && !previous.equals(group)) {
+                    log.warning("World " + world + " is in world groups " + previous + " and " + group
+                            + ". Using " + group + ".");
+                }
+            }
+        }
+
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * World group of a world. Worlds that are not part of a configured group form a group of their own.
+     *
+     * @param world name of the world
+     * @return name of the world's group
+     */
+    public String worldGroup(String world) {
+        return worldGroups.getOrDefault(world, world);
+    }
+
     /**
      * Parse currency list from configuration, if present.
      * A currency definition consists of a map of denominations to value.
      * A denomination type is defined either as the item id,
      * or a semicolon-separated string of item id; damage value; data value
      *
+     * @param currency     currency to add the denominations to
      * @param denomSection config section containing denomination definition
      * @param savedConfig  the entire config for if the denom section is "null"
      */
-    private void parseCurrency(ConfigurationSection denomSection, FileConfiguration savedConfig) {
+    private void parseCurrency(GringottsCurrency currency, ConfigurationSection denomSection, FileConfiguration savedConfig) {
         // if the denom section is null, it means it doesn't have a dictionary
         // thus we'll read it in the new list format
         if (denomSection == null && savedConfig.isList("currency.denominations")) {
@@ -274,7 +383,7 @@ public enum Configuration {
                 }
             }
         } else if (denomSection != null) {
-            parseLegacyCurrency(denomSection);
+            parseLegacyCurrency(currency, denomSection);
         } else {
             throw new GringottsConfigurationException("Denom section is null.");
         }
@@ -286,9 +395,10 @@ public enum Configuration {
      * A denomination type is defined either as the item id, item name,
      * or a semicolon-separated string of item id; damage value; data value
      *
+     * @param currency     currency to add the denominations to
      * @param denomSection config section containing denomination definition
      */
-    private void parseLegacyCurrency(ConfigurationSection denomSection) {
+    private void parseLegacyCurrency(GringottsCurrency currency, ConfigurationSection denomSection) {
         Set<String> denoms = denomSection.getKeys(false);
 
         if (denoms.isEmpty()) {
@@ -353,7 +463,8 @@ public enum Configuration {
     }
 
     /**
-     * Currency configuration.
+     * Currency configuration. A reload replaces the currency as a whole, so an operation that consults it more than
+     * once should read it once and keep using that instance.
      */
     public GringottsCurrency getCurrency() {
         return currency;
@@ -1,6 +1,7 @@
 package org.gestern.gringotts;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -9,6 +10,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.logging.Level;
 
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.AdvancedPie;
@@ -37,12 +39,17 @@ import org.gestern.gringotts.commands.VaultCommand;
 import org.gestern.gringotts.currency.Denomination;
 import org.gestern.gringotts.data.DAO;
 import org.gestern.gringotts.data.EBeanDAO;
+import org.gestern.gringotts.data.StorageExecutor;
 import org.gestern.gringotts.dependency.DependencyProviderImpl;
 import org.gestern.gringotts.dependency.GenericDependency;
 import org.gestern.gringotts.dependency.placeholdersapi.PlaceholderAPIDependency;
 import org.gestern.gringotts.event.AccountListener;
 import org.gestern.gringotts.event.PlayerVaultListener;
 import org.gestern.gringotts.event.VaultCreator;
+import org.gestern.gringotts.journal.TransactionJournal;
+import org.gestern.gringotts.maintenance.VaultAuditor;
+import org.gestern.gringotts.maintenance.VaultConsolidator;
+import org.gestern.gringotts.maintenance.VaultReconciler;
 import org.gestern.gringotts.pendingoperation.PendingOperationListener;
 import org.gestern.gringotts.pendingoperation.PendingOperationManager;
 
@@ -66,9 +73,20 @@ public class Gringotts extends JavaPlugin {
     private final DependencyProvider dependencies = new DependencyProviderImpl(this);
     private final Database ebean;
     private final PendingOperationManager pendingOperationManager = new PendingOperationManager();
+    private final VaultTotals vaultTotals = new VaultTotals();
+    private final StorageExecutor storageExecutor = new StorageExecutor();
+    private final AccountMailboxes accountMailboxes =
+            new AccountMailboxes(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    private final VaultReconciler vaultReconciler = new VaultReconciler(8);
+    private final BalanceSnapshots balanceSnapshots = new BalanceSnapshots();
     private Accounting accounting;
     private DAO dao;
     private Eco eco;
+    private VaultAuditor vaultAuditor;
+    private VaultConsolidator vaultConsolidator;
+    private VirtualLedger virtualLedger;
+    private BankRegistry bankRegistry;
+    private TransactionJournal journal;
 
     /**
      * Instantiates a new Gringotts.
@@ -86,6 +104,8 @@ public class Gringotts extends JavaPlugin {
         dataSourceConfig.setUrl(replaceDatabaseString("jdbc:sqlite:{DIR}{NAME}.db"));
         dataSourceConfig.setDriver("org.sqlite.JDBC");
         dataSourceConfig.setIsolationLevel(Transaction.SERIALIZABLE);
+        // accounts are written from several threads, wait for locks instead of failing
+        dataSourceConfig.setCustomProperties(Map.of("busy_timeout", "5000", "journal_mode", "WAL"));
 
         cfg.setDataSourceConfig(dataSourceConfig);
         cfg.setDdlGenerate(true);
@@ -112,6 +132,8 @@ public class Gringotts extends JavaPlugin {
         try {
             // just call DAO once to ensure it's loaded before startup is complete
             dao = getDAO();
+            virtualLedger = new VirtualLedger(dao);
+            bankRegistry = new BankRegistry(dao);
 
             new BukkitRunnable() {
                 // Run once worlds are loaded
@@ -125,6 +147,7 @@ public class Gringotts extends JavaPlugin {
             // load and init configuration
             saveDefaultConfig(); // saves default configuration if no config.yml exists yet
             reloadConfig();
+            openJournal();
 
             accounting = new Accounting();
             eco        = new GringottsEco();
@@ -143,6 +166,7 @@ public class Gringotts extends JavaPlugin {
 
             registerCommands();
             registerEvents();
+            registerTasks();
 
             if (this.dependencies.hasDependency("vault")) {
                 getServer().getServicesManager().register(
@@ -246,6 +270,20 @@ public class Gringotts extends JavaPlugin {
     public void onDisable() {
         this.dependencies.onDisable();
 
+        accountMailboxes.shutdown();
+
+        // hand the latest virtual account balances to storage before it shuts down
+        if (virtualLedger != null) {
+            virtualLedger.flush();
+        }
+
+        if (journal != null) {
+            journal.close();
+        }
+
+        // apply queued writes before the connection goes away
+        storageExecutor.shutdown();
+
         // shut down db connection
         try {
             if (dao != null) {
@@ -348,6 +386,34 @@ public class Gringotts extends JavaPlugin {
         // listeners for other account types are loaded with dependencies
     }
 
+    private void openJournal() {
+        if (!Configuration.CONF.journalEnabled) {
+            return;
+        }
+
+        try {
+            journal = new TransactionJournal(
+                    new File(getDataFolder(), "journal").toPath(),
+                    Configuration.CONF.journalSegmentRecords,
+                    Configuration.CONF.journalMaxSegments
+            );
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Could not open the transaction journal. Transactions are not recorded.", e);
+        }
+    }
+
+    private void registerTasks() {
+        if (Configuration.CONF.vaultVerificationInterval > 0 && Configuration.CONF.vaultAuditBudget > 0) {
+            vaultAuditor = new VaultAuditor();
+            vaultAuditor.runTaskTimer(this, 20, 1);
+        }
+
+        if (Configuration.CONF.vaultConsolidation) {
+            vaultConsolidator = new VaultConsolidator();
+            vaultConsolidator.runTaskTimer(this, 1, 1);
+        }
+    }
+
     /**
      * Register an accountholder provider with Gringotts.
      * This is necessary for Gringotts to find and create
@@ -492,4 +558,94 @@ public class Gringotts extends JavaPlugin {
     public PendingOperationManager getPendingOperationManager() {
         return pendingOperationManager;
     }
+
+    /**
+     * Serial executors per account for account operations off the main thread.
+     *
+     * @return the account mailboxes
+     */
+    public AccountMailboxes getAccountMailboxes() {
+        return accountMailboxes;
+    }
+
+    /**
+     * Balances of accounts without physical items.
+     *
+     * @return the virtual account ledger
+     */
+    public VirtualLedger getVirtualLedger() {
+        return virtualLedger;
+    }
+
+    /**
+     * Banks with their owners and members.
+     *
+     * @return the bank registry
+     */
+    public BankRegistry getBankRegistry() {
+        return bankRegistry;
+    }
+
+    /**
+     * Background verification of vault balances.
+     *
+     * @return the vault auditor, or null if verification is disabled
+     */
+    public VaultAuditor getVaultAuditor() {
+        return vaultAuditor;
+    }
+
+    /**
+     * Background consolidation of crowded vaults.
+     *
+     * @return the vault consolidator, or null if consolidation is disabled
+     */
+    public VaultConsolidator getVaultConsolidator() {
+        return vaultConsolidator;
+    }
+
+    /**
+     * Threads for database reads and writes.
+     *
+     * @return the storage executor
+     */
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
+    /**
+     * Loads chunks of vaults asynchronously for work that needs their real contents.
+     *
+     * @return the vault reconciler
+     */
+    public VaultReconciler getVaultReconciler() {
+        return vaultReconciler;
+    }
+
+    /**
+     * Running vault balance totals per account.
+     *
+     * @return the vault totals
+     */
+    public VaultTotals getVaultTotals() {
+        return vaultTotals;
+    }
+
+    /**
+     * Latest balance snapshots of accounts, for relaxed reads.
+     *
+     * @return the balance snapshots
+     */
+    public BalanceSnapshots getBalanceSnapshots() {
+        return balanceSnapshots;
+    }
+
+    /**
+     * Record of completed transactions.
+     *
+     * @return the transaction journal, or null if it is disabled
+     */
+    public TransactionJournal getJournal() {
+        return journal;
+    }
 }
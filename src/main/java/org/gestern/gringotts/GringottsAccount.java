@@ -3,22 +3,22 @@ package org.gestern.gringotts;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.Tag;
-import org.bukkit.block.ShulkerBox;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.BlockStateMeta;
 import org.gestern.gringotts.accountholder.AccountHolder;
 import org.gestern.gringotts.accountholder.PlayerAccountHolder;
+import org.gestern.gringotts.accountholder.VirtualAccountHolder;
 import org.gestern.gringotts.api.TransactionResult;
 import org.gestern.gringotts.currency.Denomination;
+import org.gestern.gringotts.currency.GringottsCurrency;
 import org.gestern.gringotts.data.DAO;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.*;
 
 /**
@@ -30,13 +30,43 @@ import java.util.concurrent.*;
 public class GringottsAccount {
     public final  AccountHolder owner;
     private final DAO           dao = Gringotts.instance.getDao();
+    /**
+     * Virtual accounts hold no items and are kept entirely in the ledger, without any main thread access.
+     */
+    private final boolean       virtual;
+    /**
+     * World group this account is restricted to, or null if it covers all worlds.
+     */
+    private final String        worldGroup;
 
     public GringottsAccount(AccountHolder owner) {
+        this(owner, null);
+    }
+
+    private GringottsAccount(AccountHolder owner, String worldGroup) {
         if (owner == null) {
             throw new IllegalArgumentException("Account owner cannot be null");
         }
 
         this.owner = owner;
+        this.virtual = owner instanceof VirtualAccountHolder;
+        this.worldGroup = worldGroup;
+    }
+
+    /**
+     * View of this account restricted to the vaults in the world group of a world. The owner's inventory and
+     * enderchest only count while the owner is in that group. Without configured world groups, this is the account
+     * itself.
+     *
+     * @param world name of the world
+     * @return this account, restricted to the world group of the given world
+     */
+    public GringottsAccount inWorld(String world) {
+        if (virtual || world == null || Configuration.CONF.worldGroups.isEmpty()) {
+            return this;
+        }
+
+        return new GringottsAccount(owner, Configuration.CONF.worldGroup(world));
     }
 
     /**
@@ -71,6 +101,18 @@ public class GringottsAccount {
      * @return current balance of this account in cents
      */
     public long getBalance() {
+        if (virtual) {
+            return Gringotts.instance.getVirtualLedger().balance(this);
+        }
+
+        if (!hasOnlinePlayer() && worldGroup == null) {
+            return storedBalance();
+        }
+
+        if (relaxedReads()) {
+            return snapshot().total();
+        }
+
         CompletableFuture<Long> cents            = getCents();
         CompletableFuture<Long> playerInv        = countPlayerInventory();
         CompletableFuture<Long> playerEnderchest = countPlayerEnderchest();
@@ -91,6 +133,10 @@ public class GringottsAccount {
      * @return current balance this account has in chest(s) in cents
      */
     public long getVaultBalance() {
+        if (virtual) {
+            return 0;
+        }
+
         return getTimeout(countChestInventories());
     }
 
@@ -100,6 +146,10 @@ public class GringottsAccount {
      * @return current balance this account has in chest(s) in cents
      */
     public long getVaultBalance(int index) {
+        if (virtual) {
+            return -1;
+        }
+
         return getTimeout(countChestInventory(index));
     }
 
@@ -109,15 +159,27 @@ public class GringottsAccount {
      * @return current balance this account has in chest(s) in cents
      */
     public Location getVaultLocation(int index) {
+        if (virtual) {
+            return null;
+        }
+
         return getTimeout(countChestLocation(index));
     }
 
 
     public Collection<AccountChest> getVaultChests() {
+        if (virtual) {
+            return Collections.emptyList();
+        }
+
         return getTimeout(getChests());
     }
 
     public int getVaultCount() {
+        if (!virtual && relaxedReads()) {
+            return snapshot().vaultCount();
+        }
+
         return getVaultChests().size();
     }
 
@@ -127,6 +189,20 @@ public class GringottsAccount {
      * @return current balance this account has in inventory in cents
      */
     public long getInvBalance() {
+        if (virtual) {
+            return Gringotts.instance.getVirtualLedger().balance(this);
+        }
+
+        if (!hasOnlinePlayer()) {
+            return dao.retrieveCents(this);
+        }
+
+        if (relaxedReads()) {
+            BalanceSnapshot snapshot = snapshot();
+
+            return snapshot.cents() + snapshot.inventory();
+        }
+
         CompletableFuture<Long> cents     = getCents();
         CompletableFuture<Long> playerInv = countPlayerInventory();
         CompletableFuture<Long> f         = cents.thenCombine(playerInv, Long::sum);
@@ -135,6 +211,14 @@ public class GringottsAccount {
     }
 
     public long getEndBalance() {
+        if (virtual || !hasOnlinePlayer()) {
+            return 0;
+        }
+
+        if (relaxedReads()) {
+            return snapshot().enderchest();
+        }
+
         return getTimeout(countPlayerEnderchest());
     }
 
@@ -145,108 +229,38 @@ public class GringottsAccount {
      * @return Whether amount successfully added
      */
     public TransactionResult add(long amount) {
-        Callable<TransactionResult> callMe = () -> {
-            // Cannot add negative amount
+        if (virtual) {
             if (amount < 0) {
                 return TransactionResult.ERROR;
             }
 
-            long centsStored = dao.retrieveCents(this);
+            Gringotts.instance.getVirtualLedger().add(this, amount);
 
-            long remaining = amount + centsStored;
-
-            // add currency to account's vaults
-            if (Configuration.CONF.useVaultContainer) {
-                for (AccountChest chest : dao.retrieveChests(this)) {
-                    remaining -= chest.add(remaining);
-
-                    if (remaining <= 0) {
-                        break;
-                    }
-
-                    if (Configuration.CONF.includeShulkerBoxes) {
-                        remaining = addToShulkerBox(remaining, chest.chest().getInventory());
-                    }
-                }
-            }
-
-            // add stuff to player's inventory and enderchest too, when they are online
-            Optional<Player> playerOpt = playerOwner();
-
-            if (playerOpt.isPresent()) {
-                Player player = playerOpt.get();
-
-                if (remaining > 0 && Permissions.USE_VAULT_INVENTORY.isAllowed(player)) {
-                    remaining -= new AccountInventory(player.getInventory()).add(remaining);
-
-                    if (Configuration.CONF.includeShulkerBoxes && remaining > 0) {
-                        remaining = addToShulkerBox(remaining, player.getInventory());
-                    }
-                }
-                if (remaining > 0 && Configuration.CONF.useVaultEnderChest && Permissions.USE_VAULT_ENDERCHEST.isAllowed(player)) {
-                    remaining -= new AccountInventory(player.getEnderChest()).add(remaining);
+            return TransactionResult.SUCCESS;
+        }
 
-                    if (Configuration.CONF.includeShulkerBoxes && remaining > 0) {
-                        remaining = addToShulkerBox(remaining, player.getEnderChest());
-                    }
-                }
+        Callable<TransactionResult> callMe = () -> {
+            // Cannot add negative amount
+            if (amount < 0) {
+                return TransactionResult.ERROR;
             }
 
-            // allow smallest denom value as threshold for available space
-            // TODO make maximum virtual amount configurable
-            // this is under the assumption that there is always at least 1 denomination
-            List<Denomination> denoms             = Configuration.CONF.getCurrency().getDenominations();
-            long               smallestDenomValue = denoms.get(denoms.size() - 1).getValue();
-
-            if (remaining < smallestDenomValue) {
-                dao.storeCents(this, remaining);
-                remaining = 0;
-            }
+            long remaining = AccountHoldings.capture(this).deposit(amount);
 
             if (remaining == 0) {
                 return TransactionResult.SUCCESS;
             }
 
-            if (Configuration.CONF.dropOverflowingItem && playerOpt.isPresent()) {
-                for (Denomination denomination : Configuration.CONF.getCurrency().getDenominations()) {
-                    if (denomination.getValue() > remaining) {
-                        continue;
-                    }
-
-                    // noinspection ConstantValue
-                    if (denomination.getKey().type == null) {
-                        Gringotts.instance.getLogger().warning("Denomination " + denomination.getUnitName() + " has no item type set!");
-
-                        continue;
-                    }
-
-                    ItemStack stack        = new ItemStack(denomination.getKey().type);
-                    int       stackSize    = stack.getMaxStackSize();
-                    long      denItemCount = denomination.getValue() > 0 ? remaining / denomination.getValue() : 0;
-
-                    while (denItemCount > 0) {
-                        int remainderStackSize;
-
-                        if (denItemCount > stackSize) {
-                            remainderStackSize = stackSize;
-                        } else {
-                            remainderStackSize = (int) denItemCount;
-                        }
-
-                        stack.setAmount(remainderStackSize);
-
-                        denItemCount -= remainderStackSize;
-                        remaining -= remainderStackSize * denomination.getValue();
-
-                        playerOpt.get().getWorld().dropItem(playerOpt.get().getLocation(), stack);
-                    }
-                }
-            }
+            dropOverflow(remaining);
 
             return TransactionResult.INSUFFICIENT_SPACE;
         };
 
-        return getTimeout(callSync(callMe));
+        return ordered(List.of(this), () -> {
+            preloadCents(this);
+
+            return getTimeout(callSync(callMe));
+        });
     }
 
     /**
@@ -257,109 +271,221 @@ public class GringottsAccount {
      * @return amount actually removed.
      */
     public TransactionResult remove(long amount) {
+        if (virtual) {
+            if (amount < 0) {
+                return TransactionResult.ERROR;
+            }
+
+            return Gringotts.instance.getVirtualLedger().remove(this, amount)
+                    ? TransactionResult.SUCCESS
+                    : TransactionResult.INSUFFICIENT_FUNDS;
+        }
+
         Callable<TransactionResult> callMe = () -> {
             // Cannot remove negative amount
             if (amount < 0) {
                 return TransactionResult.ERROR;
             }
 
-            // Make sure we have enough to remove
-            if (getBalance() < amount) {
-                return TransactionResult.INSUFFICIENT_FUNDS;
-            }
+            // the whole withdrawal is planned on one snapshot of all containers, including change
+            return AccountHoldings.capture(this).withdraw(amount);
+        };
 
-            long remaining = amount;
+        return ordered(List.of(this), () -> {
+            preloadCents(this);
 
-            // Now remove the physical amount left
-            if (Configuration.CONF.useVaultContainer) {
-                for (AccountChest chest : dao.retrieveChests(this)) {
-                    remaining -= chest.remove(remaining);
+            return getTimeout(callSync(callMe));
+        });
+    }
 
-                    if (remaining <= 0) {
-                        break;
-                    }
+    /**
+     * Move an amount in cents from this account to another, along with a tax in cents that is taken from this
+     * account too. The funds for amount and tax are checked and withdrawn from one read of this account's holdings,
+     * and the amount is deposited with one read of the recipient's. If the recipient has no space for it, both
+     * accounts are restored. Between two virtual accounts, the transfer is a single ledger operation.
+     *
+     * @param recipient account receiving the amount
+     * @param amount    amount in cents to move
+     * @param tax       tax in cents to take from this account on top of the amount
+     * @return result of the transfer
+     */
+    public TransactionResult transfer(GringottsAccount recipient, long amount, long tax) {
+        if (amount < 0 || tax < 0) {
+            return TransactionResult.ERROR;
+        }
 
-                    if (Configuration.CONF.includeShulkerBoxes) {
-                        remaining = removeFromShulkerBox(remaining, chest.chest().getInventory());
-                    }
-                }
-            }
+        VirtualLedger ledger = Gringotts.instance.getVirtualLedger();
 
-            Optional<Player> playerOpt = playerOwner();
+        if (virtual && recipient.virtual) {
+            return ledger.transfer(this, recipient, amount, tax)
+                    ? TransactionResult.SUCCESS
+                    : TransactionResult.INSUFFICIENT_FUNDS;
+        }
 
-            if (playerOpt.isPresent()) {
-                Player player = playerOpt.get();
+        Callable<TransactionResult> callMe = () -> {
+            TransactionResult withdrawn;
+
+            if (virtual) {
+                withdrawn = ledger.remove(this, amount + tax)
+                        ? TransactionResult.SUCCESS
+                        : TransactionResult.INSUFFICIENT_FUNDS;
+            } else {
+                withdrawn = AccountHoldings.capture(this).withdraw(amount + tax);
+            }
 
-                if (Permissions.USE_VAULT_INVENTORY.isAllowed(player) && remaining > 0) {
-                    remaining -= new AccountInventory(player.getInventory()).remove(remaining);
+            if (withdrawn != TransactionResult.SUCCESS) {
+                return withdrawn;
+            }
 
-                    if (Configuration.CONF.includeShulkerBoxes && remaining > 0) {
-                        remaining = removeFromShulkerBox(remaining, player.getInventory());
-                    }
-                }
-                if (Configuration.CONF.useVaultEnderChest && remaining > 0) {
-                    remaining -= new AccountInventory(player.getEnderChest()).remove(remaining);
+            if (recipient.virtual) {
+                ledger.add(recipient, amount);
 
-                    if (Configuration.CONF.includeShulkerBoxes && remaining > 0) {
-                        remaining = removeFromShulkerBox(remaining, player.getEnderChest());
-                    }
-                }
+                return TransactionResult.SUCCESS;
             }
 
-            if (remaining < 0)
-                // took too much, pay back the extra
-                return add(-remaining);
+            long remaining = AccountHoldings.capture(recipient).deposit(amount);
 
             if (remaining > 0) {
-                // cannot represent the leftover in our denominations, take them from the virtual reserve
-                long cents = dao.retrieveCents(this);
-                dao.storeCents(this, cents - remaining);
+                // take back what did fit, then refund the sender
+                recipient.takeBack(amount - remaining);
+                refund(amount + tax);
+
+                return TransactionResult.INSUFFICIENT_SPACE;
             }
 
             return TransactionResult.SUCCESS;
         };
 
-        return getTimeout(callSync(callMe));
-    }
+        return ordered(List.of(this, recipient), () -> {
+            if (!virtual) {
+                preloadCents(this);
+            }
 
-    public long addToShulkerBox(long remaining, Inventory inventory) {
-        for (ItemStack itemStack : inventory.getContents()) {
-            if (itemStack != null && Tag.SHULKER_BOXES.isTagged(itemStack.getType()) && itemStack.getItemMeta() instanceof BlockStateMeta blockState) {
-                if (blockState.getBlockState() instanceof ShulkerBox shulkerBox) {
-                    remaining -= new AccountInventory(shulkerBox.getInventory()).add(remaining);
+            if (!recipient.virtual) {
+                preloadCents(recipient);
+            }
 
-                    shulkerBox.update();
-                    blockState.setBlockState(shulkerBox);
-                    itemStack.setItemMeta(blockState);
+            return getTimeout(callSync(callMe));
+        });
+    }
 
-                    if (remaining <= 0) {
-                        break;
-                    }
-                }
+    /**
+     * Run an operation on accounts with items in order with the other operations on them. Off the main thread, it is
+     * queued in the mailboxes of the accounts, so that operations on one account run strictly one after another
+     * while operations on different accounts run concurrently on the account workers. The main thread runs it right
+     * away, it must not wait for workers that wait for it.
+     */
+    private TransactionResult ordered(List<GringottsAccount> accounts, Callable<TransactionResult> operation) {
+        try {
+            if (Bukkit.isPrimaryThread() || AccountMailboxes.isWorker()) {
+                return operation.call();
             }
+
+            return Gringotts.instance.getAccountMailboxes().submit(accounts, operation).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new GringottsException(e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GringottsException(e);
         }
+    }
 
-        return remaining;
+    /**
+     * Take back a value that was just deposited. If the items cannot be withdrawn, for instance because their change
+     * fits nowhere, the value is taken from the cents reserve instead. Must be called on the main thread.
+     */
+    private void takeBack(long value) {
+        AccountHoldings holdings = AccountHoldings.capture(this);
+
+        if (holdings.withdraw(value) != TransactionResult.SUCCESS) {
+            holdings.adjustReserve(-value);
+        }
     }
 
-    public long removeFromShulkerBox(long remaining, Inventory inventory) {
-        for (ItemStack itemStack : inventory.getContents()) {
-            if (itemStack != null && Tag.SHULKER_BOXES.isTagged(itemStack.getType()) && itemStack.getItemMeta() instanceof BlockStateMeta blockState) {
-                if (blockState.getBlockState() instanceof ShulkerBox shulkerBox) {
-                    remaining -= new AccountInventory(shulkerBox.getInventory()).remove(remaining);
+    /**
+     * Give back a value that was withdrawn. What does not fit in the holdings is dropped at the owner's feet if
+     * possible, and anything left is kept in the cents reserve. Must be called on the main thread.
+     */
+    private void refund(long value) {
+        if (virtual) {
+            Gringotts.instance.getVirtualLedger().add(this, value);
+
+            return;
+        }
+
+        AccountHoldings holdings = AccountHoldings.capture(this);
+        long            unpaid   = holdings.deposit(value);
+
+        unpaid -= dropOverflow(unpaid);
+
+        if (unpaid > 0) {
+            holdings.adjustReserve(unpaid);
+        }
+    }
+
+    /**
+     * Whether value that fits in none of this account's containers can be dropped at the owner's feet.
+     *
+     * @return true if overflowing items are dropped and the owner is online
+     */
+    boolean canDropOverflow() {
+        return Configuration.CONF.dropOverflowingItem && playerOwner().isPresent();
+    }
+
+    /**
+     * Drop items worth a value at the owner's feet, if overflowing items are dropped and the owner is online.
+     * The part of the value that cannot be paid in items is not dropped.
+     *
+     * @param value value in cents to drop
+     * @return value actually dropped
+     */
+    long dropOverflow(long value) {
+        Optional<Player> playerOpt = playerOwner();
+
+        if (value <= 0 || !Configuration.CONF.dropOverflowingItem || playerOpt.isEmpty()) {
+            return 0;
+        }
+
+        GringottsCurrency  currency      = Configuration.CONF.getCurrency();
+        List<Denomination> denominations = currency.getDenominations();
+        long[]             split         = new long[denominations.size()];
+        long               dropped       = value - currency.getChangeMaker().split(value, split);
+
+        for (int i = 0; i < split.length; i++) {
+            Denomination denomination = denominations.get(i);
+
+            // noinspection ConstantValue
+            if (denomination.getKey().type == null) {
+                Gringotts.instance.getLogger().warning("Denomination " + denomination.getUnitName() + " has no item type set!");
+
+                dropped -= split[i] * denomination.getValue();
+
+                continue;
+            }
 
-                    shulkerBox.update();
-                    blockState.setBlockState(shulkerBox);
-                    itemStack.setItemMeta(blockState);
+            ItemStack stack        = new ItemStack(denomination.getKey().type);
+            int       stackSize    = stack.getMaxStackSize();
+            long      denItemCount = split[i];
 
-                    if (remaining <= 0) {
-                        break;
-                    }
+            while (denItemCount > 0) {
+                int remainderStackSize;
+
+                if (denItemCount > stackSize) {
+                    remainderStackSize = stackSize;
+                } else {
+                    remainderStackSize = (int) denItemCount;
                 }
+
+                stack.setAmount(remainderStackSize);
+
+                denItemCount -= remainderStackSize;
+
+                playerOpt.get().getWorld().dropItem(playerOpt.get().getLocation(), stack);
             }
         }
 
-        return remaining;
+        return dropped;
     }
 
     @Override
@@ -368,30 +494,93 @@ public class GringottsAccount {
     }
 
     /**
-     * Returns the player owning this account, if the owner is actually a player and online.
+     * Returns the player owning this account, if the owner is actually a player and online, and in this account's
+     * world group.
      *
      * @return {@link Optional} of the player owning this account, if the owner is actually a player and online, otherwise
      * empty.
      */
-    private Optional<Player> playerOwner() {
+    Optional<Player> playerOwner() {
         if (owner instanceof PlayerAccountHolder) {
             OfflinePlayer player = ((PlayerAccountHolder) owner).accountHolder;
 
-            return Optional.ofNullable(player.getPlayer());
+            return Optional.ofNullable(player.getPlayer()).filter(p -> inScope(p.getWorld().getName()));
         }
 
         return Optional.empty();
     }
 
+    /**
+     * Vaults of this account, restricted to its world group if it has one.
+     *
+     * @return vaults of this account
+     */
+    Collection<AccountChest> chests() {
+        Collection<AccountChest> chests = dao.retrieveChests(this);
+
+        if (worldGroup == null) {
+            return chests;
+        }
+
+        List<AccountChest> scoped = new ArrayList<>();
+
+        for (AccountChest chest : chests) {
+            if (inScope(chest.sign.getWorld().getName())) {
+                scoped.add(chest);
+            }
+        }
+
+        return scoped;
+    }
+
+    /**
+     * Whether the owner is a player who is online. Otherwise the account consists only of stored cents and vaults.
+     */
+    private boolean hasOnlinePlayer() {
+        return owner instanceof PlayerAccountHolder playerOwner && playerOwner.accountHolder.isOnline();
+    }
+
+    /**
+     * Balance of an account without an online player, answered on the calling thread. Vaults are taken from the
+     * running totals once they are loaded, otherwise cents and vaults are summed in storage.
+     */
+    private long storedBalance() {
+        if (!Configuration.CONF.useVaultContainer) {
+            return dao.retrieveCents(this);
+        }
+
+        OptionalLong vaults = Gringotts.instance.getVaultTotals().total(this);
+
+        if (vaults.isPresent()) {
+            return dao.retrieveCents(this) + vaults.getAsLong();
+        }
+
+        return dao.retrieveStoredBalance(this);
+    }
+
+    private boolean inScope(String world) {
+        return worldGroup == null || worldGroup.equals(Configuration.CONF.worldGroup(world));
+    }
+
     private CompletableFuture<Long> countChestInventories() {
+        if (!Configuration.CONF.useVaultContainer) {
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        // the running total covers all vaults of the account, so it cannot be used within a world group
+        if (worldGroup == null) {
+            OptionalLong total = Gringotts.instance.getVaultTotals().total(this);
+
+            if (total.isPresent()) {
+                return CompletableFuture.completedFuture(total.getAsLong());
+            }
+        }
+
         Callable<Long> callMe = () -> {
-            Collection<AccountChest> chests  = dao.retrieveChests(this);
-            long                     balance = 0;
+            long balance = 0;
 
-            if (Configuration.CONF.useVaultContainer) {
-                for (AccountChest chest : chests) {
-                    balance += chest.balance();
-                }
+            for (AccountChest chest : chests()) {
+                balance += chest.balance();
             }
 
             return balance;
@@ -402,7 +591,7 @@ public class GringottsAccount {
 
     private CompletableFuture<Long> countChestInventory(int index) {
         Callable<Long> callMe = () -> {
-            List<AccountChest> chests = new ArrayList<>(dao.retrieveChests(this));
+            List<AccountChest> chests = new ArrayList<>(chests());
 
             if (Configuration.CONF.useVaultContainer && index < chests.size() && index >= 0) {
                 return chests.get(index).balance();
@@ -424,7 +613,7 @@ public class GringottsAccount {
 
     private CompletableFuture<Location> countChestLocation(int index) {
         Callable<Location> callMe = () -> {
-            List<AccountChest> chests = new ArrayList<>(dao.retrieveChests(this));
+            List<AccountChest> chests = new ArrayList<>(chests());
 
             if (Configuration.CONF.useVaultContainer && index < chests.size() && index >= 0) {
                 return chests.get(index).chestLocation();
@@ -436,43 +625,102 @@ public class GringottsAccount {
     }
 
     private CompletableFuture<Collection<AccountChest>> getChests() {
-        return callSync(() -> dao.retrieveChests(this));
+        return callSync(this::chests);
     }
 
     private CompletableFuture<Long> countPlayerInventory() {
-        Callable<Long> callMe = () -> {
-            long balance = 0;
+        return callSync(this::playerInventoryBalance);
+    }
 
-            Optional<Player> playerOpt = playerOwner();
-            if (playerOpt.isPresent() && Permissions.USE_VAULT_INVENTORY.isAllowed(playerOpt.get())) {
-                Player player = playerOpt.get();
+    private CompletableFuture<Long> countPlayerEnderchest() {
+        return callSync(this::playerEnderchestBalance);
+    }
 
-                balance += new AccountInventory(player.getInventory()).balance();
-            }
-            return balance;
-        };
+    private long playerInventoryBalance() {
+        long balance = 0;
 
-        return callSync(callMe);
+        Optional<Player> playerOpt = playerOwner();
+        if (playerOpt.isPresent() && Permissions.USE_VAULT_INVENTORY.isAllowed(playerOpt.get())) {
+            Player player = playerOpt.get();
+
+            balance += new AccountInventory(player.getInventory()).balance();
+        }
+        return balance;
     }
 
-    private CompletableFuture<Long> countPlayerEnderchest() {
-        Callable<Long> callMe = () -> {
-            long balance = 0;
+    private long playerEnderchestBalance() {
+        long balance = 0;
 
-            Optional<Player> playerOpt = playerOwner();
-            if (playerOpt.isPresent() && Permissions.USE_VAULT_ENDERCHEST.isAllowed(playerOpt.get())) {
-                Player player = playerOpt.get();
+        Optional<Player> playerOpt = playerOwner();
+        if (playerOpt.isPresent() && Permissions.USE_VAULT_ENDERCHEST.isAllowed(playerOpt.get())) {
+            Player player = playerOpt.get();
+
+            balance += new AccountInventory(player.getEnderChest()).balance();
+        }
+        return balance;
+    }
+
+    /**
+     * Whether reads of this account may be answered from its latest balance snapshot. Snapshots cover all vaults,
+     * so views restricted to a world group always read their containers. Changes publish new snapshots from the
+     * holdings they changed, see {@link AccountHoldings}.
+     */
+    boolean relaxedReads() {
+        return Configuration.CONF.relaxedReads && worldGroup == null;
+    }
+
+    /**
+     * Latest balance snapshot of this account, taking a new one on the main thread if there is none or it is too
+     * old.
+     */
+    private BalanceSnapshot snapshot() {
+        BalanceSnapshot snapshot = Gringotts.instance.getBalanceSnapshots().get(this);
+
+        if (snapshot == null || snapshot.age() > Configuration.CONF.relaxedReadsMaxStaleness) {
+            preloadCents(this);
+
+            return getTimeout(callSync(this::takeSnapshot));
+        }
 
-                balance += new AccountInventory(player.getEnderChest()).balance();
+        return snapshot;
+    }
+
+    /**
+     * Read all containers of this account and publish the result as its latest balance snapshot.
+     * Must be called on the main thread.
+     */
+    private BalanceSnapshot takeSnapshot() {
+        Collection<AccountChest> chests = chests();
+        long                     vaults = 0;
+
+        if (Configuration.CONF.useVaultContainer) {
+            for (AccountChest chest : chests) {
+                vaults += chest.balance();
             }
-            return balance;
-        };
+        }
 
-        return callSync(callMe);
+        return Gringotts.instance.getBalanceSnapshots().publish(
+                this,
+                dao.retrieveCents(this),
+                vaults,
+                playerInventoryBalance(),
+                playerEnderchestBalance(),
+                chests.size()
+        );
+    }
+
+    /**
+     * Read the cents reserve of an account off the main thread, so that the main thread finds it in memory instead
+     * of waiting for the database. Cents stay in memory once read.
+     */
+    private static void preloadCents(GringottsAccount account) {
+        if (!Bukkit.isPrimaryThread()) {
+            account.dao.retrieveCents(account);
+        }
     }
 
     private CompletableFuture<Long> getCents() {
-        return CompletableFuture.supplyAsync(() -> dao.retrieveCents(this));
+        return Gringotts.instance.getStorageExecutor().read(() -> dao.retrieveCents(this));
     }
 
     private <V> V getTimeout(CompletableFuture<V> f) {
@@ -11,6 +11,9 @@ import java.util.function.BiFunction;
  * there are default-values included here. If someone complains about a String not translating,
  * check for the yml-nodes in readLanguage below. If the node does not match the language file,
  * the default English message will be shown.
+ * <p>
+ * Messages with placeholders are compiled into {@link MessageTemplate}s when read, so that sending them doesn't
+ * rescan the text for every placeholder.
  *
  * @author Daenara (KanaYamamoto Q bukkit.org)
  */
@@ -19,43 +22,47 @@ public enum Language {
     //global
     public String noperm;
     public String playerOnly;
-    public String balance;
-    public String vault_balance;
-    public String inv_balance;
-    public String end_balance;
-    public String invalid_account;
+    public MessageTemplate balance;
+    public MessageTemplate vault_balance;
+    public MessageTemplate inv_balance;
+    public MessageTemplate end_balance;
+    public MessageTemplate invalid_account;
     public String reload;
-    public String added_denomination;
-    public String invalid_number;
+    public MessageTemplate added_denomination;
+    public MessageTemplate invalid_number;
 
     // Adding a denomination
     public String hold_item;
-    public String missing_value;
-    public String invalid_value;
+    public MessageTemplate missing_value;
+    public MessageTemplate invalid_value;
     public String denomination_name;
     public String denomination_value;
     //pay command
-    public String pay_success_tax;
-    public String pay_success_sender;
-    public String pay_success_target;
-    public String pay_insufficientFunds;
-    public String pay_insS_sender;
-    public String pay_insS_target;
-    public String pay_error;
+    public MessageTemplate pay_success_tax;
+    public MessageTemplate pay_success_sender;
+    public MessageTemplate pay_success_target;
+    public MessageTemplate pay_insufficientFunds;
+    public MessageTemplate pay_insS_sender;
+    public MessageTemplate pay_insS_target;
+    public MessageTemplate pay_error;
     //deposit command
-    public String deposit_success;
-    public String deposit_error;
+    public MessageTemplate deposit_success;
+    public MessageTemplate deposit_error;
     //withdraw command
-    public String withdraw_success;
-    public String withdraw_error;
+    public MessageTemplate withdraw_success;
+    public MessageTemplate withdraw_error;
     //moneyadmin command
-    public String moneyadmin_b;
-    public String moneyadmin_add_sender;
-    public String moneyadmin_add_target;
-    public String moneyadmin_add_error;
-    public String moneyadmin_rm_sender;
-    public String moneyadmin_rm_target;
-    public String moneyadmin_rm_error;
+    public MessageTemplate moneyadmin_b;
+    public MessageTemplate moneyadmin_add_sender;
+    public MessageTemplate moneyadmin_add_target;
+    public MessageTemplate moneyadmin_add_error;
+    public MessageTemplate moneyadmin_rm_sender;
+    public MessageTemplate moneyadmin_rm_target;
+    public MessageTemplate moneyadmin_rm_error;
+    public MessageTemplate moneyadmin_history_header;
+    public MessageTemplate moneyadmin_history_entry;
+    public MessageTemplate moneyadmin_history_empty;
+    public String moneyadmin_history_disabled;
     //gringotts vaults
     public String vault_created;
     public String vault_error;
@@ -69,6 +76,8 @@ public enum Language {
     public void readLanguage(FileConfiguration savedLanguage) {
         BiFunction<String, String, String> translator =
                 (path, def) -> Util.translateColors(savedLanguage.getString(path, def));
+        BiFunction<String, String, MessageTemplate> template =
+                (path, def) -> MessageTemplate.compile(translator.apply(path, def));
 
         //global
         LANG.noperm = translator.apply(
@@ -77,36 +86,36 @@ public enum Language {
         LANG.playerOnly = translator.apply(
                 "playeronly",
                 "This command can only be run by a player.");
-        LANG.balance = translator.apply(
+        LANG.balance = template.apply(
                 "balance",
                 "Your current total balance: %balance");
-        LANG.vault_balance = translator.apply(
+        LANG.vault_balance = template.apply(
                 "vault_balance",
                 "Vault balance: %balance");
-        LANG.inv_balance = translator.apply(
+        LANG.inv_balance = template.apply(
                 "inv_balance",
                 "Inventory balance: %balance");
-        LANG.end_balance = translator.apply(
+        LANG.end_balance = template.apply(
                 "end_balance",
                 "Enderchest balance: %balance");
-        LANG.invalid_account = translator.apply(
+        LANG.invalid_account = template.apply(
                 "invalidaccount",
                 "Invalid account: %player");
         LANG.reload = translator.apply(
                 "reload",
                 "Gringotts: Reloaded configuration!");
-        LANG.hold_item = translator.apply(
+        LANG.added_denomination = template.apply(
                 "added_denomination",
                 "Added denomination %name");
         LANG.hold_item = translator.apply(
                 "errors.holdItem",
                 "Please hold an item");
 
-        LANG.missing_value = translator.apply(
+        LANG.missing_value = template.apply(
                 "errors.missingValue",
                 "Missing argument: denomination value");
 
-        LANG.invalid_value = translator.apply(
+        LANG.invalid_value = template.apply(
                 "errors.invalidValue",
                 "Invalid argument '%value' is not a valid number for denomination value");
         LANG.denomination_name = translator.apply(
@@ -115,71 +124,83 @@ public enum Language {
         LANG.denomination_value = translator.apply(
                 "errors.denominationValue",
                 "Invalid argument '%value' is not a valid number for denomination value");
-        LANG.invalid_number = translator.apply(
+        LANG.invalid_number = template.apply(
                 "errors.invalidNumber",
                 "Invalid argument: '%value' is not a number!");
 
         //pay command
-        LANG.pay_success_sender = translator.apply(
+        LANG.pay_success_sender = template.apply(
                 "pay.success.sender",
                 "Sent %value to %player. ");
-        LANG.pay_success_tax = translator.apply(
+        LANG.pay_success_tax = template.apply(
                 "pay.success.tax",
                 "Received %value from %player.");
-        LANG.pay_success_target = translator.apply(
+        LANG.pay_success_target = template.apply(
                 "pay.success.target",
                 "Transaction tax deducted from your account: %value");
-        LANG.pay_error = translator.apply(
+        LANG.pay_error = template.apply(
                 "pay.error",
                 "Your attempt to send %value to %player failed for unknown reasons.");
-        LANG.pay_insufficientFunds = translator.apply(
+        LANG.pay_insufficientFunds = template.apply(
                 "pay.insufficientFunds",
                 "Your account has insufficient balance. Current balance: %balance. Required: %value");
-        LANG.pay_insS_sender = translator.apply(
+        LANG.pay_insS_sender = template.apply(
                 "pay.insufficientSpace.sender",
                 "%player has insufficient storage space for %value");
-        LANG.pay_insS_target = translator.apply(
+        LANG.pay_insS_target = template.apply(
                 "pay.insufficientSpace.target",
                 "%player tried to send %value, but you don't have enough space for that amount.");
 
         //deposit command
-        LANG.deposit_success = translator.apply(
+        LANG.deposit_success = template.apply(
                 "deposit.success",
                 "Deposited %value to your storage.");
-        LANG.deposit_error = translator.apply(
+        LANG.deposit_error = template.apply(
                 "deposit.error",
                 "Unable to deposit %value to your storage.");
 
         //withdraw command
-        LANG.withdraw_success = translator.apply(
+        LANG.withdraw_success = template.apply(
                 "withdraw.success",
                 "Withdrew %value from your storage.");
-        LANG.withdraw_error = translator.apply(
+        LANG.withdraw_error = template.apply(
                 "withdraw.error",
                 "Unable to withdraw %value from your storage.");
 
         //moneyadmin command
-        LANG.moneyadmin_b = translator.apply(
+        LANG.moneyadmin_b = template.apply(
                 "moneyadmin.b",
                 "Balance of account %player: %balance");
-        LANG.moneyadmin_add_sender = translator.apply(
+        LANG.moneyadmin_add_sender = template.apply(
                 "moneyadmin.add.sender",
                 "Added %value to account %player");
-        LANG.moneyadmin_add_target = translator.apply(
+        LANG.moneyadmin_add_target = template.apply(
                 "moneyadmin.add.target",
                 "Added to your account: %value");
-        LANG.moneyadmin_add_error = translator.apply(
+        LANG.moneyadmin_add_error = template.apply(
                 "moneyadmin.add.error",
                 "Could not add %value to account %player");
-        LANG.moneyadmin_rm_sender = translator.apply(
+        LANG.moneyadmin_rm_sender = template.apply(
                 "moneyadmin.rm.sender",
                 "Removed %value from account %player");
-        LANG.moneyadmin_rm_target = translator.apply(
+        LANG.moneyadmin_rm_target = template.apply(
                 "moneyadmin.rm.target",
                 "Removed from your account: %value");
-        LANG.moneyadmin_rm_error = translator.apply(
+        LANG.moneyadmin_rm_error = template.apply(
                 "moneyadmin.rm.error",
                 "Could not remove %value from account %player");
+        LANG.moneyadmin_history_header = template.apply(
+                "moneyadmin.history.header",
+                "Latest transactions of account %player:");
+        LANG.moneyadmin_history_entry = template.apply(
+                "moneyadmin.history.entry",
+                "%time %from -> %to: %value");
+        LANG.moneyadmin_history_empty = template.apply(
+                "moneyadmin.history.empty",
+                "No transactions recorded for account %player");
+        LANG.moneyadmin_history_disabled = translator.apply(
+                "moneyadmin.history.disabled",
+                "The transaction journal is disabled.");
 
         //gringotts vaults
         LANG.vault_created = translator.apply(
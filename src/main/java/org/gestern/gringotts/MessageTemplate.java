@@ -0,0 +1,118 @@
+package org.gestern.gringotts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A language message split once into literal text and placeholders such as {@code %player}, so that it can be
+ * rendered in a single pass instead of rescanning the message for every tag.
+ * <p>
+ * A placeholder is a {@code %} followed by letters or underscores. Placeholders that are not given a value when
+ * rendering are kept as they are. Instances are immutable.
+ */
+public final class MessageTemplate {
+    private final String   text;
+    /**
+     * Literal text before each placeholder, followed by the literal text after the last one.
+     */
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int      literalLength;
+
+    private MessageTemplate(String text, String[] literals, String[] placeholders) {
+        this.text = text;
+        this.literals = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+
+        for (String literal : literals) {
+            length += literal.length();
+        }
+
+        this.literalLength = length;
+    }
+
+    /**
+     * Split a message into literals and placeholders.
+     *
+     * @param text the message
+     * @return the compiled message
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> literals     = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int          start        = 0;
+        int          i            = 0;
+
+        while ((i = text.indexOf('%', i)) >= 0) {
+            int end = i + 1;
+
+            while (end < text.length() && isTagChar(text.charAt(end))) {
+                end++;
+            }
+
+            if (end == i + 1) {
+                i++;
+                continue;
+            }
+
+            literals.add(text.substring(start, i));
+            placeholders.add(text.substring(i, end));
+            start = end;
+            i = end;
+        }
+
+        literals.add(text.substring(start));
+
+        return new MessageTemplate(text, literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * Render the message, putting values in for placeholders.
+     *
+     * @param tagsAndValues alternating placeholders, such as {@code "%player"}, and the values to put in for them
+     * @return the rendered message
+     */
+    public String render(String... tagsAndValues) {
+        if (placeholders.length == 0) {
+            return text;
+        }
+
+        StringBuilder b = new StringBuilder(literalLength + 16 * placeholders.length);
+
+        for (int p = 0; p < placeholders.length; p++) {
+            b.append(literals[p]);
+
+            String placeholder = placeholders[p];
+            String value       = placeholder;
+
+            for (int t = 0; t + 1 < tagsAndValues.length; t += 2) {
+                if (placeholder.equals(tagsAndValues[t])) {
+                    value = tagsAndValues[t + 1];
+                    break;
+                }
+            }
+
+            b.append(value);
+        }
+
+        b.append(literals[placeholders.length]);
+
+        return b.toString();
+    }
+
+    /**
+     * The message as configured.
+     *
+     * @return the message text
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static boolean isTagChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+}
@@ -0,0 +1,76 @@
+package org.gestern.gringotts;
+
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running total of the cached vault balances of each account. Chests are tracked while they are registered with
+ * the storage, and every change of a tracked chest's cached balance is applied to its account's total, so that vault
+ * balances can be read from any thread without visiting the chests.
+ */
+public class VaultTotals {
+    private final ConcurrentMap<Key, AtomicLong> totals = new ConcurrentHashMap<>();
+    private volatile boolean                     loaded;
+
+    /**
+     * Include a chest's cached balance in its account's total. Tracking a chest twice has no effect.
+     *
+     * @param chest the chest
+     */
+    public void track(AccountChest chest) {
+        if (chest.setTracked(true)) {
+            add(chest.account, chest.getCachedBalance());
+        }
+    }
+
+    /**
+     * Remove a chest's cached balance from its account's total.
+     *
+     * @param chest the chest
+     */
+    public void untrack(AccountChest chest) {
+        if (chest.setTracked(false)) {
+            add(chest.account, -chest.getCachedBalance());
+        }
+    }
+
+    /**
+     * Mark all stored chests as tracked. Totals are only reported from then on.
+     */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Total cached balance of an account's vaults in cents.
+     *
+     * @param account the account
+     * @return the total, or empty if the chests have not been loaded yet
+     */
+    public OptionalLong total(GringottsAccount account) {
+        if (!loaded) {
+            return OptionalLong.empty();
+        }
+
+        AtomicLong total = totals.get(new Key(account));
+
+        return OptionalLong.of(total == null ? 0 : total.get());
+    }
+
+    /**
+     * Apply a change of a tracked chest's cached balance.
+     */
+    void add(GringottsAccount account, long delta) {
+        if (delta != 0) {
+            totals.computeIfAbsent(new Key(account), key -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    private record Key(String type, String id) {
+        Key(GringottsAccount account) {
+            this(account.owner.getType(), account.owner.getId());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.gestern.gringotts;
+
+import org.bukkit.Bukkit;
+import org.gestern.gringotts.data.DAO;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory balances of accounts that hold no physical items. Balances are changed with atomic operations from any
+ * thread, without taking any lock, so changes never wait for each other.
+ * <p>
+ * A change only marks its account as dirty. A single flusher, started by the first change after the previous flush,
+ * hands the latest balance of every dirty account to storage. A burst of changes to an account is thus written once.
+ */
+public class VirtualLedger {
+    private final DAO                                  dao;
+    private final ConcurrentMap<Key, AtomicLong>       balances = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, GringottsAccount> dirty    = new ConcurrentHashMap<>();
+    private final AtomicBoolean                        flushing = new AtomicBoolean();
+
+    public VirtualLedger(DAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Current balance of an account in cents.
+     *
+     * @param account the account
+     * @return current balance of the account in cents
+     */
+    public long balance(GringottsAccount account) {
+        return entry(account).get();
+    }
+
+    /**
+     * Add an amount to an account.
+     *
+     * @param account the account
+     * @param amount  amount in cents, not negative
+     */
+    public void add(GringottsAccount account, long amount) {
+        entry(account).addAndGet(amount);
+        persist(account);
+    }
+
+    /**
+     * Remove an amount from an account, if it holds at least that much.
+     *
+     * @param account the account
+     * @param amount  amount in cents, not negative
+     * @return false if the balance was too low, in which case nothing was changed
+     */
+    public boolean remove(GringottsAccount account, long amount) {
+        AtomicLong balance = entry(account);
+        long       current;
+
+        do {
+            current = balance.get();
+
+            if (current < amount) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - amount));
+
+        persist(account);
+
+        return true;
+    }
+
+    /**
+     * Move an amount from one account to another, along with a tax that is taken from the sender too. The sender's
+     * funds are checked and taken in one atomic step, and the amount is then added to the recipient, which cannot
+     * fail, so the transfer either happens completely or not at all.
+     *
+     * @param from   the sender
+     * @param to     the recipient
+     * @param amount amount in cents to move, not negative
+     * @param tax    tax in cents to take from the sender on top of the amount, not negative
+     * @return false if the sender's balance was too low, in which case nothing was changed
+     */
+    public boolean transfer(GringottsAccount from, GringottsAccount to, long amount, long tax) {
+        if (!remove(from, amount + tax)) {
+            return false;
+        }
+
+        add(to, amount);
+
+        return true;
+    }
+
+    /**
+     * Forget the balance of an account, before it is deleted. Waits for a flush that is in progress, and drops the
+     * account's unwritten balance, so that no balance is written after the deletion.
+     *
+     * @param account the account
+     */
+    public synchronized void forget(GringottsAccount account) {
+        Key key = new Key(account);
+
+        dirty.remove(key);
+        balances.remove(key);
+    }
+
+    private AtomicLong entry(GringottsAccount account) {
+        return balances.computeIfAbsent(new Key(account), key -> new AtomicLong(dao.retrieveCents(account)));
+    }
+
+    /**
+     * Hand the latest balance of every changed account to storage. Flushes run one at a time, so a later flush
+     * always writes the later balance.
+     */
+    public synchronized void flush() {
+        // cleared first, so that changes made during this flush start another one
+        flushing.set(false);
+
+        for (Key key : dirty.keySet()) {
+            GringottsAccount account = dirty.remove(key);
+            AtomicLong       balance = balances.get(key);
+
+            if (account != null && balance != null) {
+                dao.storeCents(account, balance.get());
+            }
+        }
+    }
+
+    private void persist(GringottsAccount account) {
+        dirty.put(new Key(account), account);
+
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (Gringotts.instance.isEnabled()) {
+            Bukkit.getScheduler().runTaskAsynchronously(Gringotts.instance, this::flush);
+        } else {
+            flush();
+        }
+    }
+
+    private record Key(String type, String id) {
+        Key(GringottsAccount account) {
+            this(account.owner.getType(), account.owner.getId());
+        }
+    }
+}
@@ -29,9 +29,8 @@ public class AccountHolderFactory implements Iterable<AccountHolderProvider> {
     public AccountHolderFactory() {
         // linked HashMap maintains iteration order -> prefer player to be checked first
         accountHolderProviders.put("player", new PlayerAccountHolderProvider());
-
-        // TODO support banks
-        // TODO support virtual accounts
+        accountHolderProviders.put(VirtualAccountHolderProvider.TYPE, new VirtualAccountHolderProvider());
+        accountHolderProviders.put(BankAccountHolderProvider.TYPE, new BankAccountHolderProvider());
     }
 
     /**
@@ -0,0 +1,17 @@
+package org.gestern.gringotts.accountholder;
+
+/**
+ * Holder of a bank account. Banks hold no physical items; their balance is kept in the ledger like that of other
+ * virtual accounts, and players take part in them as owners or members.
+ */
+public class BankAccountHolder extends VirtualAccountHolder {
+
+    public BankAccountHolder(String name) {
+        super(BankAccountHolderProvider.TYPE, name);
+    }
+
+    @Override
+    public String toString() {
+        return "BankAccountHolder(" + getId() + ")";
+    }
+}
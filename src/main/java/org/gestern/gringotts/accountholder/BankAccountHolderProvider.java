@@ -0,0 +1,42 @@
+package org.gestern.gringotts.accountholder;
+
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.OfflinePlayer;
+import org.gestern.gringotts.Gringotts;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Provides holders of existing bank accounts.
+ */
+public class BankAccountHolderProvider implements AccountHolderProvider {
+
+    public static final String TYPE = "bank";
+
+    @Override
+    public @Nullable AccountHolder getAccountHolder(@NotNull String name) {
+        return Gringotts.instance.getBankRegistry().exists(name) ? new BankAccountHolder(name) : null;
+    }
+
+    @Override
+    public @Nullable AccountHolder getAccountHolder(@NotNull UUID uuid) {
+        return null;
+    }
+
+    @Override
+    public @Nullable AccountHolder getAccountHolder(@NotNull OfflinePlayer player) {
+        return null;
+    }
+
+    @Override
+    public @NotNull String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public @NotNull Set<String> getAccountNames() {
+        return Gringotts.instance.getBankRegistry().names();
+    }
+}
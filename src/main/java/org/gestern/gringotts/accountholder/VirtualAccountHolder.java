@@ -0,0 +1,76 @@
+package org.gestern.gringotts.accountholder;
+
+import java.util.Objects;
+
+/**
+ * Holder of an account that exists only in the ledger, without any physical items. Used for accounts owned by the
+ * server or by plugins, such as shops, taxes or jobs.
+ */
+public class VirtualAccountHolder implements AccountHolder {
+
+    private final String type;
+    private final String id;
+
+    public VirtualAccountHolder(String id) {
+        this("virtual", id);
+    }
+
+    protected VirtualAccountHolder(String type, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Attempted to create virtual account holder with null id.");
+        }
+
+        this.type = type;
+        this.id = id;
+    }
+
+    @Override
+    public String getName() {
+        return id;
+    }
+
+    @Override
+    public void sendMessage(String message) {
+        // nobody to tell
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof VirtualAccountHolder)) {
+            return false;
+        }
+
+        VirtualAccountHolder other = (VirtualAccountHolder) obj;
+
+        return type.equals(other.type) && id.equals(other.id);
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualAccountHolder(" + type + ":" + id + ")";
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean hasPermission(String permission) {
+        return false;
+    }
+}
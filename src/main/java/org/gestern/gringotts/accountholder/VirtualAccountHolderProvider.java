@@ -0,0 +1,84 @@
+package org.gestern.gringotts.accountholder;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.OfflinePlayer;
+import org.gestern.gringotts.Gringotts;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Provides holders of virtual accounts. Only accounts that were created before are provided, so that arbitrary
+ * names are not mistaken for virtual accounts.
+ */
+public class VirtualAccountHolderProvider implements AccountHolderProvider {
+
+    public static final String TYPE = "virtual";
+
+    /**
+     * Ids of existing virtual accounts, loaded from storage on first use.
+     */
+    private volatile Set<String> ids;
+
+    @Override
+    public @Nullable AccountHolder getAccountHolder(@NotNull String id) {
+        return ids().contains(id) ? new VirtualAccountHolder(id) : null;
+    }
+
+    @Override
+    public @Nullable AccountHolder getAccountHolder(@NotNull UUID uuid) {
+        return getAccountHolder(uuid.toString());
+    }
+
+    @Override
+    public @Nullable AccountHolder getAccountHolder(@NotNull OfflinePlayer player) {
+        return null;
+    }
+
+    /**
+     * Create a virtual account, or get the holder of the existing one.
+     *
+     * @param id id of the account
+     * @return holder of the virtual account
+     */
+    public @NotNull AccountHolder create(@NotNull String id) {
+        VirtualAccountHolder holder = new VirtualAccountHolder(id);
+
+        Gringotts.instance.getAccounting().getAccount(holder);
+        ids().add(id);
+
+        return holder;
+    }
+
+    @Override
+    public @NotNull String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public @NotNull Set<String> getAccountNames() {
+        return Set.copyOf(ids());
+    }
+
+    private Set<String> ids() {
+        Set<String> loaded = ids;
+
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = ids;
+
+                if (loaded == null) {
+                    loaded = ConcurrentHashMap.newKeySet();
+
+                    Gringotts.instance.getDao().forEachAccount(TYPE, loaded::add);
+
+                    ids = loaded;
+                }
+            }
+        }
+
+        return loaded;
+    }
+}
@@ -177,4 +177,15 @@ public interface Account {
      * @return relevant chest vaults
      */
     Collection<AccountChest> getVaultChests();
+
+    /**
+     * Return this account restricted to the world group of the given world, if world groups are configured.
+     * Balance and transactions of the result only involve vaults in that group.
+     *
+     * @param world name of the world
+     * @return this account, restricted to the world's group
+     */
+    default Account inWorld(String world) {
+        return this;
+    }
 }
@@ -7,13 +7,18 @@ import org.bukkit.entity.Player;
 import org.gestern.gringotts.*;
 import org.gestern.gringotts.accountholder.AccountHolder;
 import org.gestern.gringotts.accountholder.AccountHolderFactory;
+import org.gestern.gringotts.accountholder.AccountHolderProvider;
+import org.gestern.gringotts.accountholder.BankAccountHolder;
+import org.gestern.gringotts.accountholder.BankAccountHolderProvider;
 import org.gestern.gringotts.accountholder.PlayerAccountHolder;
+import org.gestern.gringotts.accountholder.VirtualAccountHolderProvider;
 import org.gestern.gringotts.api.*;
 import org.gestern.gringotts.currency.GringottsCurrency;
 import org.gestern.gringotts.data.DAO;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
@@ -69,7 +74,11 @@ public class GringottsEco implements Eco {
      */
     @Override
     public BankAccount bank(String name) {
-        return new InvalidAccount("bank", name);
+        if (Gringotts.instance.getBankRegistry().exists(name)) {
+            return new ValidBankAccount(new GringottsAccount(new BankAccountHolder(name)));
+        }
+
+        return new InvalidAccount(BankAccountHolderProvider.TYPE, name);
     }
 
     /**
@@ -119,8 +128,7 @@ public class GringottsEco implements Eco {
      */
     @Override
     public Set<String> getBanks() {
-        // TODO implement banks
-        return Collections.emptySet();
+        return Gringotts.instance.getBankRegistry().names();
     }
 
     /**
@@ -146,6 +154,16 @@ public class GringottsEco implements Eco {
         return custom(parts[0], parts[1]);
     }
 
+    /**
+     * The Gringotts account behind an account of this API.
+     *
+     * @param account an account
+     * @return the Gringotts account, or null if the account is not a valid one
+     */
+    static GringottsAccount gringottsAccount(Account account) {
+        return account instanceof ValidAccount valid ? valid.acc : null;
+    }
+
     private static class InvalidAccount implements BankAccount, PlayerAccount {
 
         private final String type;
@@ -179,7 +197,16 @@ public class GringottsEco implements Eco {
          */
         @Override
         public Account create() {
-            // TODO if account type allows virtual accounts, create it
+            if (VirtualAccountHolderProvider.TYPE.equals(type)) {
+                Optional<AccountHolderProvider> provider = Gringotts.instance.getAccountHolderFactory().getProvider(type);
+
+                if (provider.isPresent() && provider.get() instanceof VirtualAccountHolderProvider virtualProvider) {
+                    virtualProvider.create(id);
+
+                    return Gringotts.instance.getEco().custom(type, id);
+                }
+            }
+
             return this;
         }
 
@@ -437,10 +464,6 @@ public class GringottsEco implements Eco {
          * The Gcurr.
          */
         final GringottsCurrency gcurr;
-        /**
-         * The Format string.
-         */
-        final String formatString; // TODO this should be configurable
 
         /**
          * Instantiates a new Curr.
@@ -449,7 +472,6 @@ public class GringottsEco implements Eco {
          */
         Curr(GringottsCurrency curr) {
             this.gcurr = curr;
-            formatString = "%." + curr.getDigits() + "f %s";
         }
 
         /**
@@ -480,7 +502,7 @@ public class GringottsEco implements Eco {
          */
         @Override
         public String format(double value) {
-            return Configuration.CONF.getCurrency().format(formatString, value);
+            return Configuration.CONF.getCurrency().format(value);
         }
 
         /**
@@ -538,7 +560,9 @@ public class GringottsEco implements Eco {
          */
         @Override
         public Account delete() {
+            Gringotts.instance.getVirtualLedger().forget(acc);
             dao.deleteAccount(acc);
+            Gringotts.instance.getBalanceSnapshots().forget(acc);
             throw new RuntimeException("deleting accounts not supported by Gringotts");
         }
 
@@ -710,6 +734,13 @@ public class GringottsEco implements Eco {
             return acc.getVaultChests();
         }
 
+        @Override
+        public Account inWorld(String world) {
+            GringottsAccount scoped = acc.inWorld(world);
+
+            return scoped == acc ? this : new ValidAccount(scoped);
+        }
+
         /**
          * Can add boolean.
          *
@@ -733,6 +764,13 @@ public class GringottsEco implements Eco {
             super(acc);
         }
 
+        @Override
+        public Account inWorld(String world) {
+            GringottsAccount scoped = acc.inWorld(world);
+
+            return scoped == acc ? this : new ValidPlayerAccount(scoped);
+        }
+
         /**
          * Deposit transaction result.
          *
@@ -803,4 +841,101 @@ public class GringottsEco implements Eco {
             throw new UnsupportedOperationException("Not implemented");
         }
     }
+
+    private class ValidBankAccount extends ValidAccount implements BankAccount {
+
+        private final String name;
+
+        /**
+         * Instantiates a new Valid bank account.
+         *
+         * @param acc the acc
+         */
+        public ValidBankAccount(GringottsAccount acc) {
+            super(acc);
+            this.name = acc.owner.getId();
+        }
+
+        /**
+         * Delete the bank with its memberships.
+         *
+         * @return the deleted, now invalid, account
+         */
+        @Override
+        public Account delete() {
+            Gringotts.instance.getBankRegistry().delete(name);
+
+            return new InvalidAccount(BankAccountHolderProvider.TYPE, name);
+        }
+
+        /**
+         * Add owner bank account.
+         *
+         * @param player the player name or UUID
+         * @return the bank account
+         */
+        @Override
+        public BankAccount addOwner(String player) {
+            UUID uuid = playerId(player);
+
+            if (uuid != null) {
+                Gringotts.instance.getBankRegistry().addOwner(name, uuid);
+            }
+
+            return this;
+        }
+
+        /**
+         * Add member bank account.
+         *
+         * @param player the player name or UUID
+         * @return the bank account
+         */
+        @Override
+        public BankAccount addMember(String player) {
+            UUID uuid = playerId(player);
+
+            if (uuid != null) {
+                Gringotts.instance.getBankRegistry().addMember(name, uuid);
+            }
+
+            return this;
+        }
+
+        /**
+         * Is owner boolean.
+         *
+         * @param player the player name or UUID
+         * @return the boolean
+         */
+        @Override
+        public boolean isOwner(String player) {
+            UUID uuid = playerId(player);
+
+            return uuid != null && Gringotts.instance.getBankRegistry().isOwner(name, uuid);
+        }
+
+        /**
+         * Is member boolean.
+         *
+         * @param player the player name or UUID
+         * @return the boolean
+         */
+        @Override
+        public boolean isMember(String player) {
+            UUID uuid = playerId(player);
+
+            return uuid != null && Gringotts.instance.getBankRegistry().isMember(name, uuid);
+        }
+
+        private UUID playerId(String player) {
+            try {
+                return UUID.fromString(player);
+            } catch (IllegalArgumentException ignored) {}
+
+            OfflinePlayer offlinePlayer = Util.getOfflinePlayer(player);
+
+            return offlinePlayer != null ? offlinePlayer.getUniqueId() : null;
+        }
+    }
 }
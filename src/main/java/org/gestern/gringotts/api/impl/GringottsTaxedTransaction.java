@@ -37,26 +37,20 @@ public class GringottsTaxedTransaction extends GringottsTransaction implements T
      */
     @Override
     public TransactionResult to(Account recipient) {
-        TransactionResult taxResult = from.remove(taxes);
+        TransactionResult result = transfer(recipient, taxes);
 
-        if (taxResult != TransactionResult.SUCCESS) {
-            return taxResult;
-        }
-
-        TransactionResult result = super.to(recipient);
-
-        // undo taxing if transaction failed
-        if (result != TransactionResult.SUCCESS) {
-            from.add(taxes);
-        } else {
-            if (collector != null) {
-                collector.add(taxes);
-            }
+        if (result == TransactionResult.SUCCESS && collector != null) {
+            collector.add(taxes);
         }
 
         return result;
     }
 
+    @Override
+    protected double journaledTax() {
+        return taxes;
+    }
+
     /**
      * Add a tax collector to this taxed transaction. The tax collector account receives the taxes from this
      * transaction.
@@ -1,10 +1,14 @@
 package org.gestern.gringotts.api.impl;
 
 import org.gestern.gringotts.Configuration;
+import org.gestern.gringotts.Gringotts;
+import org.gestern.gringotts.GringottsAccount;
 import org.gestern.gringotts.api.Account;
 import org.gestern.gringotts.api.TaxedTransaction;
 import org.gestern.gringotts.api.Transaction;
 import org.gestern.gringotts.api.TransactionResult;
+import org.gestern.gringotts.currency.GringottsCurrency;
+import org.gestern.gringotts.journal.TransactionJournal;
 
 public class GringottsTransaction implements Transaction {
 
@@ -41,26 +45,95 @@ public class GringottsTransaction implements Transaction {
 
     @Override
     public TransactionResult to(Account to) {
+        return transfer(to, 0);
+    }
+
+    /**
+     * Send the value of this transaction to an account, taking a tax from the source account on top of it.
+     * Transfers between Gringotts accounts read each account's holdings once; other accounts are charged and
+     * credited step by step.
+     *
+     * @param to  account receiving the value
+     * @param tax tax to take from the source account
+     * @return result of the transaction
+     */
+    protected TransactionResult transfer(Account to, double tax) {
         if (value < 0) {
             return TransactionResult.ERROR;
         }
 
-        TransactionResult removed = from.remove(value);
+        GringottsAccount  source = GringottsEco.gringottsAccount(from);
+        GringottsAccount  target = GringottsEco.gringottsAccount(to);
+        TransactionResult result;
+
+        if (source != null && target != null) {
+            GringottsCurrency currency = Configuration.CONF.getCurrency();
+
+            result = source.transfer(target, currency.getCentValue(value), currency.getCentValue(tax));
+        } else {
+            result = transferStepwise(to, tax);
+        }
+
+        if (result == TransactionResult.SUCCESS) {
+            journal(to);
+        }
+
+        return result;
+    }
 
-        if (removed == TransactionResult.SUCCESS) {
-            TransactionResult added = to.add(value);
+    private TransactionResult transferStepwise(Account to, double tax) {
+        if (tax != 0) {
+            TransactionResult taxResult = from.remove(tax);
 
-            if (added != TransactionResult.SUCCESS) {
-                // adding failed, refund source
-                from.add(value);
+            if (taxResult != TransactionResult.SUCCESS) {
+                return taxResult;
             }
+        }
+
+        TransactionResult removed = from.remove(value);
 
-            // returns success or reason add failed
-            return added;
+        if (removed != TransactionResult.SUCCESS) {
+            // undo taxing, return reason remove failed
+            if (tax != 0) {
+                from.add(tax);
+            }
+
+            return removed;
+        }
+
+        TransactionResult added = to.add(value);
+
+        if (added != TransactionResult.SUCCESS) {
+            // adding failed, refund source
+            from.add(value + tax);
         }
 
-        // return reason remove failed
-        return removed;
+        // returns success or reason add failed
+        return added;
+    }
+
+    /**
+     * Taxes paid by the sender on top of the value, as recorded in the transaction journal.
+     *
+     * @return taxes of this transaction
+     */
+    protected double journaledTax() {
+        return 0;
+    }
+
+    private void journal(Account to) {
+        TransactionJournal journal = Gringotts.instance.getJournal();
+
+        if (journal != null) {
+            GringottsCurrency currency = Configuration.CONF.getCurrency();
+
+            journal.record(
+                    from.type() + ":" + from.id(),
+                    to.type() + ":" + to.id(),
+                    currency.getCentValue(value),
+                    currency.getCentValue(journaledTax())
+            );
+        }
     }
 
     @Override
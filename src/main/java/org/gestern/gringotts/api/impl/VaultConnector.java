@@ -7,6 +7,7 @@ import org.bukkit.OfflinePlayer;
 import org.gestern.gringotts.Gringotts;
 import org.gestern.gringotts.Util;
 import org.gestern.gringotts.api.Account;
+import org.gestern.gringotts.api.BankAccount;
 import org.gestern.gringotts.api.Eco;
 import org.gestern.gringotts.api.TransactionResult;
 
@@ -35,7 +36,7 @@ public class VaultConnector implements Economy {
 
     @Override
     public boolean hasBankSupport() {
-        return false;
+        return true;
     }
 
     @Override
@@ -143,105 +144,97 @@ public class VaultConnector implements Economy {
 
     @Override
     public EconomyResponse createBank(String name, String player) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //        BankAccount bank = eco.bank(name).addOwner(player);
-        //        if (bank.exists())
-        //        	return new EconomyResponse(0, 0, ResponseType.FAILURE, "Unable to create bank!");
-        //        else
-        //        	return new EconomyResponse(0, 0, ResponseType.SUCCESS, "Created bank " + name);
+        OfflinePlayer owner = Util.getOfflinePlayer(player);
+
+        if (owner == null) {
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, LANG.plugin_vault_error);
+        }
+
+        return createBank(name, owner);
     }
 
     @Override
-    public EconomyResponse createBank(String s, OfflinePlayer offlinePlayer) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
+    public EconomyResponse createBank(String name, OfflinePlayer offlinePlayer) {
+        if (!Gringotts.instance.getBankRegistry().create(name, offlinePlayer.getUniqueId())) {
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, LANG.plugin_vault_error);
+        }
+
+        return new EconomyResponse(0, 0, ResponseType.SUCCESS, null);
     }
 
     @Override
     public EconomyResponse deleteBank(String name) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //    	Account deleted = eco.bank(name).delete();
-        //    	if (deleted.exists())
-        //    		return new EconomyResponse(0, 0, ResponseType.FAILURE, "Unable to delete bank account!");
-        //    	else
-        //    		return new EconomyResponse(0, 0, ResponseType.SUCCESS, "Deleted bank account (or it didn't
-        // exist)");
+        if (!Gringotts.instance.getBankRegistry().delete(name)) {
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, LANG.plugin_vault_error);
+        }
+
+        return new EconomyResponse(0, 0, ResponseType.SUCCESS, null);
     }
 
     @Override
     public EconomyResponse bankBalance(String name) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //    	double balance = eco.bank(name).balance();
-        //        return new EconomyResponse(0, balance,
-        //        		ResponseType.SUCCESS, "Balance of bank "+ name +": "+ balance);
+        BankAccount bank = eco.bank(name);
+
+        if (!bank.exists()) {
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, LANG.plugin_vault_error);
+        }
+
+        return new EconomyResponse(0, bank.balance(), ResponseType.SUCCESS, null);
     }
 
     @Override
     public EconomyResponse bankHas(String name, double amount) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //    	BankAccount bank = eco.bank(name);
-        //    	double balance = bank.balance();
-        //    	if (bank.has(amount))
-        //    		return new EconomyResponse(0, balance, ResponseType.SUCCESS, "Bank " + name + " has at least " +
-        // amount );
-        //    	else
-        //    		return new EconomyResponse(0, balance, ResponseType.FAILURE, "Bank " + name + " does not have at
-        // least " + amount );
+        BankAccount bank    = eco.bank(name);
+        double      balance = bank.balance();
+
+        if (!bank.exists()) {
+            return new EconomyResponse(0, 0, ResponseType.FAILURE, LANG.plugin_vault_error);
+        }
+
+        if (bank.has(amount)) {
+            return new EconomyResponse(0, balance, ResponseType.SUCCESS, null);
+        }
+
+        return new EconomyResponse(0, balance, ResponseType.FAILURE, LANG.plugin_vault_insufficientFunds);
     }
 
     @Override
     public EconomyResponse bankWithdraw(String name, double amount) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //    	BankAccount bank = eco.bank(name);
-        //    	TransactionResult result = bank.remove(amount);
-        //    	if (result == TransactionResult.SUCCESS)
-        //    		return new EconomyResponse(amount, bank.balance(), ResponseType.SUCCESS, "Removed " + amount + "
-        // from bank " + name);
-        //    	else
-        //    		return new EconomyResponse(0, bank.balance(), ResponseType.SUCCESS, "Failed to remove " + amount +
-        // " from bank " + name);
+        return withdrawPlayer(eco.bank(name), amount);
     }
 
     @Override
     public EconomyResponse bankDeposit(String name, double amount) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //    	BankAccount bank = eco.bank(name);
-        //    	TransactionResult result = bank.add(amount);
-        //    	if (result == TransactionResult.SUCCESS)
-        //    		return new EconomyResponse(amount, bank.balance(), ResponseType.SUCCESS, "Added " + amount + " to
-        // bank " + name);
-        //    	else
-        //    		return new EconomyResponse(0, bank.balance(), ResponseType.SUCCESS, "Failed to add " + amount + "
-        // to bank " + name);
+        return depositPlayer(eco.bank(name), amount);
     }
 
     @Override
     public EconomyResponse isBankOwner(String name, String playerName) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //        return new EconomyResponse(0, 0, eco.bank(name).isOwner(playerName)? ResponseType.SUCCESS :
-        // FAILURE, "");
+        return membershipResponse(eco.bank(name).isOwner(playerName));
     }
 
     @Override
-    public EconomyResponse isBankOwner(String s, OfflinePlayer offlinePlayer) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
+    public EconomyResponse isBankOwner(String name, OfflinePlayer offlinePlayer) {
+        return membershipResponse(eco.bank(name).isOwner(offlinePlayer.getUniqueId().toString()));
     }
 
     @Override
     public EconomyResponse isBankMember(String name, String playerName) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
-        //    	return new EconomyResponse(0, 0, eco.bank(name).isMember(playerName)? ResponseType.SUCCESS : FAILURE,
-        // "");
+        return membershipResponse(eco.bank(name).isMember(playerName));
     }
 
     @Override
-    public EconomyResponse isBankMember(String s, OfflinePlayer offlinePlayer) {
-        return new EconomyResponse(0, 0, ResponseType.NOT_IMPLEMENTED, LANG.plugin_vault_notImplemented);
+    public EconomyResponse isBankMember(String name, OfflinePlayer offlinePlayer) {
+        return membershipResponse(eco.bank(name).isMember(offlinePlayer.getUniqueId().toString()));
+    }
+
+    private EconomyResponse membershipResponse(boolean member) {
+        return new EconomyResponse(0, 0, member ? ResponseType.SUCCESS : ResponseType.FAILURE, null);
     }
 
     @Override
     public List<String> getBanks() {
-        return new ArrayList<>();
-        //        return new ArrayList<String>(eco.getBanks());
+        return new ArrayList<>(eco.getBanks());
     }
 
     @Override
@@ -268,34 +261,34 @@ public class VaultConnector implements Economy {
 
     @Override
     public EconomyResponse depositPlayer(String player, String world, double amount) {
-        return depositPlayer(player, amount);
+        return depositPlayer(eco.getAccount(player).inWorld(world), amount);
     }
 
     @Override
     public EconomyResponse depositPlayer(OfflinePlayer offlinePlayer, String world, double amount) {
-        return depositPlayer(offlinePlayer, amount);
+        return depositPlayer(eco.player(offlinePlayer.getUniqueId()).inWorld(world), amount);
     }
 
 
     @Override
     public double getBalance(String player, String world) {
-        return getBalance(player);
+        return eco.getAccount(player).inWorld(world).balance();
     }
 
     @Override
     public double getBalance(OfflinePlayer offlinePlayer, String world) {
-        return getBalance(offlinePlayer); // TODO multiworld-support
+        return eco.player(offlinePlayer.getUniqueId()).inWorld(world).balance();
     }
 
 
     @Override
     public boolean has(String player, String world, double amount) {
-        return has(player, amount); // TODO multiworld-support
+        return eco.getAccount(player).inWorld(world).has(amount);
     }
 
     @Override
     public boolean has(OfflinePlayer offlinePlayer, String world, double amount) {
-        return has(offlinePlayer, amount); // TODO multiworld-support
+        return eco.player(offlinePlayer.getUniqueId()).inWorld(world).has(amount);
     }
 
 
@@ -312,11 +305,11 @@ public class VaultConnector implements Economy {
 
     @Override
     public EconomyResponse withdrawPlayer(String player, String world, double amount) {
-        return withdrawPlayer(player, amount); // TODO multiworld-support
+        return withdrawPlayer(eco.getAccount(player).inWorld(world), amount);
     }
 
     @Override
     public EconomyResponse withdrawPlayer(OfflinePlayer offlinePlayer, String world, double amount) {
-        return withdrawPlayer(offlinePlayer, amount); // TODO multiworld-support
+        return withdrawPlayer(eco.player(offlinePlayer.getUniqueId()).inWorld(world), amount);
     }
 }
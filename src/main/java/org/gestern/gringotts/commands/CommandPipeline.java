@@ -0,0 +1,50 @@
+package org.gestern.gringotts.commands;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.gestern.gringotts.Gringotts;
+
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+
+/**
+ * Runs the work of a command off the main thread and delivers its reply on the main thread.
+ * <p>
+ * Resolving account names, reading balances and storing changes happen on an asynchronous task. Account operations
+ * that touch items schedule themselves onto the main thread and are waited for by the asynchronous task, so the
+ * server keeps ticking while a command waits on storage. The work returns the reply, which sends the command's
+ * messages once it is back on the main thread.
+ */
+final class CommandPipeline {
+    private static final String INTERNAL_ERROR =
+            "An internal error occurred while attempting to perform this command";
+
+    private CommandPipeline() {
+    }
+
+    /**
+     * Run command work in the background.
+     *
+     * @param sender sender of the command, told about unexpected failures
+     * @param work   the command's work, returning its reply
+     */
+    static void submit(CommandSender sender, Callable<Runnable> work) {
+        Gringotts plugin = Gringotts.instance;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Runnable reply;
+
+            try {
+                reply = work.call();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to run command for " + sender.getName(), e);
+
+                reply = () -> sender.sendMessage(INTERNAL_ERROR);
+            }
+
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, reply);
+            }
+        });
+    }
+}
@@ -27,7 +27,7 @@ public abstract class GringottsAbstractExecutor implements TabExecutor {
     final Eco eco = Gringotts.instance.getEco();
 
     static void sendInvalidAccountMessage(CommandSender sender, String accountName) {
-        sender.sendMessage(Language.LANG.invalid_account.replace(TAG_PLAYER, accountName));
+        sender.sendMessage(Language.LANG.invalid_account.render(TAG_PLAYER, accountName));
     }
 
     /**
@@ -73,117 +73,124 @@ public abstract class GringottsAbstractExecutor implements TabExecutor {
             return true;
         }
 
-        OfflinePlayer recipientPlayer = Util.getOfflinePlayer(recipientName);
+        CommandPipeline.submit(player, () -> {
+            OfflinePlayer recipientPlayer = Util.getOfflinePlayer(recipientName);
 
-        if (recipientPlayer == null) {
-            player.spigot().sendMessage(
-                    new ComponentBuilder(
-                            "Player with name `" + recipientName + "` never played in this server before."
-                    ).create()
-            );
-
-            return true;
-        }
-
-        PlayerAccount from = eco.player(player.getUniqueId());
-        Account       to   = eco.account(recipientName);
-
-        TaxedTransaction  transaction = from.send(value).withTaxes();
-        TransactionResult result      = transaction.to(eco.player(recipientPlayer.getUniqueId()));
-
-        double tax        = transaction.getTax();
-        double valueAdded = value + tax;
-
-        String formattedBalance      = eco.currency().format(from.balance());
-        String formattedValue        = eco.currency().format(value);
-        String formattedValuePlusTax = eco.currency().format(valueAdded);
-        String formattedTax          = eco.currency().format(tax);
-
-        switch (result) {
-            case SUCCESS:
-                String succTaxMessage = Language.LANG.pay_success_tax.replace(TAG_VALUE, formattedTax);
-                String succSentMessage = Language.LANG.pay_success_sender.replace(TAG_VALUE, formattedValue).replace(TAG_PLAYER, recipientName);
-
-                from.message(succSentMessage + (tax > 0 ? succTaxMessage : ""));
-
-                String succReceivedMessage = Language.LANG.pay_success_target.replace(TAG_VALUE, formattedValue).replace(TAG_PLAYER, player.getName());
-
-                to.message(succReceivedMessage);
-
-                return true;
-            case INSUFFICIENT_FUNDS:
-                String insFMessage = Language.LANG.pay_insufficientFunds.replace(TAG_BALANCE, formattedBalance).replace(TAG_VALUE, formattedValuePlusTax);
-
-                from.message(insFMessage);
-
-                return true;
-            case INSUFFICIENT_SPACE:
-                String insSSentMessage = Language.LANG.pay_insS_sender.replace(TAG_PLAYER, recipientName).replace(TAG_VALUE, formattedValue);
-
-                from.message(insSSentMessage);
-
-                String insSReceiveMessage = Language.LANG.pay_insS_target.replace(TAG_PLAYER, from.id()).replace(TAG_VALUE, formattedValue);
-
-                to.message(insSReceiveMessage);
-
-                return true;
-            default:
-                String error = Language.LANG.pay_error.replace(TAG_VALUE, formattedValue).replace(TAG_PLAYER, recipientName);
+            if (recipientPlayer == null) {
+                return () -> player.spigot().sendMessage(
+                        new ComponentBuilder(
+                                "Player with name `" + recipientName + "` never played in this server before."
+                        ).create()
+                );
+            }
 
-                from.message(error);
+            PlayerAccount from = eco.player(player.getUniqueId());
+            Account       to   = eco.account(recipientName);
+
+            TaxedTransaction  transaction = from.send(value).withTaxes();
+            TransactionResult result      = transaction.to(eco.player(recipientPlayer.getUniqueId()));
+
+            double tax        = transaction.getTax();
+            double valueAdded = value + tax;
+
+            String formattedValue = eco.currency().format(value);
+
+            switch (result) {
+                case SUCCESS:
+                    String succTaxMessage = Language.LANG.pay_success_tax.render(TAG_VALUE, eco.currency().format(tax));
+                    String succSentMessage = Language.LANG.pay_success_sender.render(TAG_VALUE, formattedValue, TAG_PLAYER, recipientName);
+                    String succReceivedMessage = Language.LANG.pay_success_target.render(TAG_VALUE, formattedValue, TAG_PLAYER, player.getName());
+
+                    return () -> {
+                        from.message(succSentMessage + (tax > 0 ? succTaxMessage : ""));
+                        to.message(succReceivedMessage);
+                    };
+                case INSUFFICIENT_FUNDS:
+                    String formattedBalance      = eco.currency().format(from.balance());
+                    String formattedValuePlusTax = eco.currency().format(valueAdded);
+                    String insFMessage = Language.LANG.pay_insufficientFunds.render(TAG_BALANCE, formattedBalance, TAG_VALUE, formattedValuePlusTax);
+
+                    return () -> from.message(insFMessage);
+                case INSUFFICIENT_SPACE:
+                    String insSSentMessage = Language.LANG.pay_insS_sender.render(TAG_PLAYER, recipientName, TAG_VALUE, formattedValue);
+                    String insSReceiveMessage = Language.LANG.pay_insS_target.render(TAG_PLAYER, from.id(), TAG_VALUE, formattedValue);
+
+                    return () -> {
+                        from.message(insSSentMessage);
+                        to.message(insSReceiveMessage);
+                    };
+                default:
+                    String error = Language.LANG.pay_error.render(TAG_VALUE, formattedValue, TAG_PLAYER, recipientName);
+
+                    return () -> from.message(error);
+            }
+        });
 
-                return true;
-        }
+        return true;
     }
 
     void deposit(Player player, double value) {
         if (Permissions.COMMAND_DEPOSIT.isAllowed(player)) {
-            TransactionResult result         = eco.player(player.getUniqueId()).deposit(value);
-            String            formattedValue = eco.currency().format(value);
+            CommandPipeline.submit(player, () -> {
+                TransactionResult result         = eco.player(player.getUniqueId()).deposit(value);
+                String            formattedValue = eco.currency().format(value);
 
-            if (result == TransactionResult.SUCCESS) {
-                String success = Language.LANG.deposit_success.replace(TAG_VALUE, formattedValue);
+                if (result == TransactionResult.SUCCESS) {
+                    String success = Language.LANG.deposit_success.render(TAG_VALUE, formattedValue);
 
-                player.sendMessage(success);
-            } else {
-                String error = Language.LANG.deposit_error.replace(TAG_VALUE, formattedValue);
+                    return () -> player.sendMessage(success);
+                } else {
+                    String error = Language.LANG.deposit_error.render(TAG_VALUE, formattedValue);
 
-                player.sendMessage(error);
-            }
+                    return () -> player.sendMessage(error);
+                }
+            });
         }
     }
 
     void withdraw(Player player, double value) {
         if (Permissions.COMMAND_WITHDRAW.isAllowed(player)) {
-            TransactionResult result         = eco.player(player.getUniqueId()).withdraw(value);
-            String            formattedValue = eco.currency().format(value);
+            CommandPipeline.submit(player, () -> {
+                TransactionResult result         = eco.player(player.getUniqueId()).withdraw(value);
+                String            formattedValue = eco.currency().format(value);
 
-            if (result == TransactionResult.SUCCESS) {
-                String success = Language.LANG.withdraw_success.replace(TAG_VALUE, formattedValue);
+                if (result == TransactionResult.SUCCESS) {
+                    String success = Language.LANG.withdraw_success.render(TAG_VALUE, formattedValue);
 
-                player.sendMessage(success);
-            } else {
-                String error = Language.LANG.withdraw_error.replace(TAG_VALUE, formattedValue);
+                    return () -> player.sendMessage(success);
+                } else {
+                    String error = Language.LANG.withdraw_error.render(TAG_VALUE, formattedValue);
 
-                player.sendMessage(error);
-            }
+                    return () -> player.sendMessage(error);
+                }
+            });
         }
     }
 
-    void sendBalanceMessage(Account account) {
-        account.message(Language.LANG.balance.replace(TAG_BALANCE, eco.currency().format(account.balance())));
+    /**
+     * Collect the balance messages of an account. Reads the balances, so it should run in the background.
+     *
+     * @param account the account
+     * @return the messages to send to the account
+     */
+    List<String> balanceMessages(Account account) {
+        List<String> messages = new ArrayList<>(4);
+
+        messages.add(Language.LANG.balance.render(TAG_BALANCE, eco.currency().format(account.balance())));
 
         if (Configuration.CONF.balanceShowVault) {
-            account.message(Language.LANG.vault_balance.replace(TAG_BALANCE, eco.currency().format(account.vaultBalance())));
+            messages.add(Language.LANG.vault_balance.render(TAG_BALANCE, eco.currency().format(account.vaultBalance())));
         }
 
         if (Configuration.CONF.balanceShowInventory) {
-            account.message(Language.LANG.inv_balance.replace(TAG_BALANCE, eco.currency().format(account.invBalance())));
+            messages.add(Language.LANG.inv_balance.render(TAG_BALANCE, eco.currency().format(account.invBalance())));
         }
 
         if (Configuration.CONF.balanceShowEnderchest && account.hasPermission(Permissions.USE_VAULT_ENDERCHEST.node)) {
-            account.message(Language.LANG.end_balance.replace(TAG_BALANCE, eco.currency().format(account.endBalance())));
+            messages.add(Language.LANG.end_balance.render(TAG_BALANCE, eco.currency().format(account.endBalance())));
         }
+
+        return messages;
     }
 
     public List<String> suggestAccounts(String arg) {
@@ -144,7 +144,7 @@ public class GringottsExecutor extends GringottsAbstractExecutor {
                         return true;
                     }
                     if (args.length < 2) {
-                        player.sendMessage(Language.LANG.missing_value.replace(TAG_NAME, Language.LANG.denomination_value));
+                        player.sendMessage(Language.LANG.missing_value.render(TAG_NAME, Language.LANG.denomination_value));
                         return true;
                     }
                     int value;
@@ -152,11 +152,11 @@ public class GringottsExecutor extends GringottsAbstractExecutor {
                         value = Integer.valueOf(args[1]);
                     }
                     catch (NumberFormatException ex) {
-                        player.sendMessage(Language.LANG.missing_value.replace(TAG_VALUE, args[1]).replace(TAG_NAME, Language.LANG.denomination_value));
+                        player.sendMessage(Language.LANG.missing_value.render(TAG_VALUE, args[1], TAG_NAME, Language.LANG.denomination_value));
                         return true;
                     }
                     if (args.length < 3) {
-                        player.sendMessage(Language.LANG.missing_value.replace(TAG_NAME, Language.LANG.denomination_name));
+                        player.sendMessage(Language.LANG.missing_value.render(TAG_NAME, Language.LANG.denomination_name));
                         return true;
                     }
                     String name = args[2];
@@ -179,7 +179,7 @@ public class GringottsExecutor extends GringottsAbstractExecutor {
                     try {
                         configuration.save(new File(Gringotts.instance.getDataFolder(), "config.yml"));
                         Gringotts.instance.reloadConfig();
-                        player.sendMessage(Language.LANG.added_denomination.replace(TAG_NAME, pluralName));
+                        player.sendMessage(Language.LANG.added_denomination.render(TAG_NAME, pluralName));
                     } catch (IOException e) {
                         throw new RuntimeException(e);
                     }
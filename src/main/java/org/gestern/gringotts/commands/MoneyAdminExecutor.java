@@ -1,21 +1,41 @@
 package org.gestern.gringotts.commands;
 
 import com.google.common.collect.Lists;
+import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.gestern.gringotts.Configuration;
+import org.gestern.gringotts.Gringotts;
 import org.gestern.gringotts.Language;
 import org.gestern.gringotts.api.Account;
 import org.gestern.gringotts.api.TransactionResult;
-
+import org.gestern.gringotts.currency.GringottsCurrency;
+import org.gestern.gringotts.journal.JournalEntry;
+import org.gestern.gringotts.journal.TransactionJournal;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
  * Admin commands for managing ingame aspects.
  */
 public class MoneyAdminExecutor extends GringottsAbstractExecutor {
-    private static final List<String> commands = Arrays.asList("balance", "add", "remove");
+    private static final List<String> commands = Arrays.asList("balance", "add", "remove", "history");
+    private static final String       TAG_TIME        = "%time";
+    private static final String       TAG_FROM        = "%from";
+    private static final String       TAG_TO          = "%to";
+    private static final String       PLAYER_PREFIX   = "player:";
+    private static final int          HISTORY_DEFAULT = 10;
+    private static final int          HISTORY_MAX     = 100;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     /**
      * Executes the given command, returning its success.
@@ -50,18 +70,18 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
 
                 String targetAccount = args[1];
 
-                Account target = eco.getAccount(targetAccount);
+                CommandPipeline.submit(sender, () -> {
+                    Account target = eco.getAccount(targetAccount);
 
-                if (!target.exists()) {
-                    sendInvalidAccountMessage(sender, targetAccount);
-
-                    return false;
-                }
+                    if (!target.exists()) {
+                        return () -> sendInvalidAccountMessage(sender, targetAccount);
+                    }
 
-                String formattedBalance = eco.currency().format(target.balance());
-                String senderMessage = Language.LANG.moneyadmin_b.replace(TAG_BALANCE, formattedBalance).replace(TAG_PLAYER, targetAccount);
+                    String formattedBalance = eco.currency().format(target.balance());
+                    String senderMessage = Language.LANG.moneyadmin_b.render(TAG_BALANCE, formattedBalance, TAG_PLAYER, targetAccount);
 
-                sender.sendMessage(senderMessage);
+                    return () -> sender.sendMessage(senderMessage);
+                });
 
                 return true;
             }
@@ -72,14 +92,6 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
 
                 String targetAccount = args[1];
 
-                Account target = eco.getAccount(targetAccount);
-
-                if (!target.exists()) {
-                    sendInvalidAccountMessage(sender, targetAccount);
-
-                    return false;
-                }
-
                 double amount;
 
                 try {
@@ -88,22 +100,30 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
                     return false;
                 }
 
-                String            formattedAmount = eco.currency().format(amount);
-                TransactionResult added           = target.add(amount);
+                CommandPipeline.submit(sender, () -> {
+                    Account target = eco.getAccount(targetAccount);
 
-                if (added == TransactionResult.SUCCESS) {
-                    String senderMessage = Language.LANG.moneyadmin_add_sender.replace(TAG_VALUE, formattedAmount).replace(TAG_PLAYER, targetAccount);
+                    if (!target.exists()) {
+                        return () -> sendInvalidAccountMessage(sender, targetAccount);
+                    }
 
-                    sender.sendMessage(senderMessage);
+                    String            formattedAmount = eco.currency().format(amount);
+                    TransactionResult added           = target.add(amount);
 
-                    String targetMessage = Language.LANG.moneyadmin_add_target.replace(TAG_VALUE, formattedAmount);
+                    if (added == TransactionResult.SUCCESS) {
+                        String senderMessage = Language.LANG.moneyadmin_add_sender.render(TAG_VALUE, formattedAmount, TAG_PLAYER, targetAccount);
+                        String targetMessage = Language.LANG.moneyadmin_add_target.render(TAG_VALUE, formattedAmount);
 
-                    target.message(targetMessage);
-                } else {
-                    String errorMessage = Language.LANG.moneyadmin_add_error.replace(TAG_VALUE, targetAccount).replace(TAG_PLAYER, targetAccount);
+                        return () -> {
+                            sender.sendMessage(senderMessage);
+                            target.message(targetMessage);
+                        };
+                    } else {
+                        String errorMessage = Language.LANG.moneyadmin_add_error.render(TAG_VALUE, targetAccount, TAG_PLAYER, targetAccount);
 
-                    sender.sendMessage(errorMessage);
-                }
+                        return () -> sender.sendMessage(errorMessage);
+                    }
+                });
 
                 return true;
             }
@@ -115,14 +135,6 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
 
                 String targetAccount = args[1];
 
-                Account target = eco.getAccount(targetAccount);
-
-                if (!target.exists()) {
-                    sendInvalidAccountMessage(sender, targetAccount);
-
-                    return false;
-                }
-
                 double amount;
 
                 try {
@@ -131,23 +143,72 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
                     return false;
                 }
 
-                String            formattedAmount = eco.currency().format(amount);
-                TransactionResult removed         = target.remove(amount);
+                CommandPipeline.submit(sender, () -> {
+                    Account target = eco.getAccount(targetAccount);
+
+                    if (!target.exists()) {
+                        return () -> sendInvalidAccountMessage(sender, targetAccount);
+                    }
 
-                if (removed == TransactionResult.SUCCESS) {
-                    String senderMessage = Language.LANG.moneyadmin_rm_sender.replace(TAG_VALUE, formattedAmount).replace(TAG_PLAYER, targetAccount);
+                    String            formattedAmount = eco.currency().format(amount);
+                    TransactionResult removed         = target.remove(amount);
 
-                    sender.sendMessage(senderMessage);
+                    if (removed == TransactionResult.SUCCESS) {
+                        String senderMessage = Language.LANG.moneyadmin_rm_sender.render(TAG_VALUE, formattedAmount, TAG_PLAYER, targetAccount);
+                        String targetMessage = Language.LANG.moneyadmin_rm_target.render(TAG_VALUE, formattedAmount);
 
-                    String targetMessage = Language.LANG.moneyadmin_rm_target.replace(TAG_VALUE, formattedAmount);
+                        return () -> {
+                            sender.sendMessage(senderMessage);
+                            target.message(targetMessage);
+                        };
+                    } else {
+                        String errorMessage = Language.LANG.moneyadmin_rm_error.render(TAG_VALUE, formattedAmount, TAG_PLAYER, targetAccount);
 
-                    target.message(targetMessage);
-                } else {
-                    String errorMessage = Language.LANG.moneyadmin_rm_error.replace(TAG_VALUE, formattedAmount).replace(TAG_PLAYER, targetAccount);
+                        return () -> sender.sendMessage(errorMessage);
+                    }
+                });
 
-                    sender.sendMessage(errorMessage);
+                return true;
+            }
+            case "history": {
+                if (args.length > 3) {
+                    return false;
+                }
+
+                String targetAccount = args[1];
+
+                int count = HISTORY_DEFAULT;
+
+                if (args.length == 3) {
+                    try {
+                        count = Math.min(Math.max(Integer.parseInt(args[2]), 1), HISTORY_MAX);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
                 }
 
+                TransactionJournal journal = Gringotts.instance.getJournal();
+
+                if (journal == null) {
+                    sender.sendMessage(Language.LANG.moneyadmin_history_disabled);
+
+                    return true;
+                }
+
+                int limit = count;
+
+                CommandPipeline.submit(sender, () -> {
+                    Account target = eco.getAccount(targetAccount);
+
+                    if (!target.exists()) {
+                        return () -> sendInvalidAccountMessage(sender, targetAccount);
+                    }
+
+                    List<String> messages = historyMessages(journal, targetAccount, target, limit);
+
+                    return () -> messages.forEach(sender::sendMessage);
+                });
+
                 return true;
             }
         }
@@ -155,6 +216,57 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
         return false;
     }
 
+    /**
+     * Read the latest transactions of an account from the journal and render them. Reads the journal, so it should
+     * run in the background.
+     */
+    private List<String> historyMessages(TransactionJournal journal, String targetAccount, Account target, int count) {
+        List<JournalEntry> entries = journal.history(target.type() + ":" + target.id(), count);
+
+        if (entries.isEmpty()) {
+            return List.of(Language.LANG.moneyadmin_history_empty.render(TAG_PLAYER, targetAccount));
+        }
+
+        List<String>      messages = new ArrayList<>(entries.size() + 1);
+        GringottsCurrency currency = Configuration.CONF.getCurrency();
+
+        messages.add(Language.LANG.moneyadmin_history_header.render(TAG_PLAYER, targetAccount));
+
+        for (JournalEntry entry : entries) {
+            String time = TIME_FORMAT.format(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timestamp()), ZoneId.systemDefault())
+            );
+
+            messages.add(Language.LANG.moneyadmin_history_entry.render(
+                    TAG_TIME, time,
+                    TAG_FROM, displayName(entry.from()),
+                    TAG_TO, displayName(entry.to()),
+                    TAG_VALUE, eco.currency().format(currency.getDisplayValue(entry.amount()))));
+        }
+
+        return messages;
+    }
+
+    /**
+     * Readable name of a journaled account: the name of a player account's player, otherwise type:id as stored.
+     */
+    private static String displayName(String account) {
+        if (account.startsWith(PLAYER_PREFIX)) {
+            try {
+                UUID   uuid = UUID.fromString(account.substring(PLAYER_PREFIX.length()));
+                String name = Bukkit.getOfflinePlayer(uuid).getName();
+
+                if (name != null) {
+                    return name;
+                }
+            } catch (IllegalArgumentException ignored) {
+                // not a uuid, show as stored
+            }
+        }
+
+        return account;
+    }
+
     /**
      * Requests a list of possible completions for a command argument.
      *
@@ -192,7 +304,8 @@ public class MoneyAdminExecutor extends GringottsAbstractExecutor {
                     case "balance":
                     case "add":
                     case "remove":
-                    case "rm": {
+                    case "rm":
+                    case "history": {
                         return suggestAccounts(args[1]);
                     }
                 }
@@ -5,6 +5,7 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.gestern.gringotts.Language;
+import org.gestern.gringotts.api.Account;
 
 import java.util.Arrays;
 import java.util.List;
@@ -42,7 +43,12 @@ public class MoneyExecutor extends GringottsAbstractExecutor {
 
         if (args.length == 0) {
             // same as balance
-            sendBalanceMessage(eco.player(player.getUniqueId()));
+            CommandPipeline.submit(player, () -> {
+                Account      account  = eco.player(player.getUniqueId());
+                List<String> messages = balanceMessages(account);
+
+                return () -> messages.forEach(account::message);
+            });
 
             return true;
         }
@@ -60,7 +66,7 @@ public class MoneyExecutor extends GringottsAbstractExecutor {
 
                     return true;
                 } catch (NumberFormatException ignored) {
-                    player.sendMessage(Language.LANG.invalid_number.replace("%value", args[1]));
+                    player.sendMessage(Language.LANG.invalid_number.render("%value", args[1]));
                     return true;
                 }
             }
@@ -72,7 +78,7 @@ public class MoneyExecutor extends GringottsAbstractExecutor {
 
                     return true;
                 } catch (NumberFormatException ignored) {
-                    player.sendMessage(Language.LANG.invalid_number.replace("%value", args[1]));
+                    player.sendMessage(Language.LANG.invalid_number.render("%value", args[1]));
                     return true;
                 }
             }
@@ -84,7 +90,7 @@ public class MoneyExecutor extends GringottsAbstractExecutor {
                     // money send <player> <amount>
                     return pay(player, value, args[1]);
                 } catch (NumberFormatException ignored) {
-                    player.sendMessage(Language.LANG.invalid_number.replace("%value", args[2]));
+                    player.sendMessage(Language.LANG.invalid_number.render("%value", args[2]));
                     return true;
                 }
             }
@@ -96,7 +102,7 @@ public class MoneyExecutor extends GringottsAbstractExecutor {
                     // money pay <amount> <player>
                     return pay(player, value, args[2]);
                 } catch (NumberFormatException ignored) {
-                    player.sendMessage(Language.LANG.invalid_number.replace("%value", args[1]));
+                    player.sendMessage(Language.LANG.invalid_number.render("%value", args[1]));
                     return true;
                 }
             }
@@ -0,0 +1,210 @@
+package org.gestern.gringotts.currency;
+
+import java.util.Arrays;
+
+/**
+ * Splits amounts into the smallest number of items of a fixed set of denominations.
+ * <p>
+ * Canonical denomination sets, where always taking the largest denomination that fits is optimal, are detected up
+ * front and keep using that greedy split. For other sets (such as 1/15/25, where greedy pays 30 as 25+1+1+1+1+1
+ * instead of 15+15) a table of optimal splits is precomputed. Amounts beyond the table are reduced with the largest
+ * denomination first, which an optimal split always does.
+ * <p>
+ * Instances are immutable and built once per currency configuration.
+ */
+public final class ChangeMaker {
+
+    /**
+     * Upper bound for the optimal split table, in multiples of the denominations' common divisor.
+     */
+    private static final int MAX_TABLE_SIZE = 1 << 16;
+
+    /**
+     * Denomination values in cents, largest first.
+     */
+    private final long[] values;
+    /**
+     * Greatest common divisor of all denomination values. Amounts are split in multiples of this.
+     */
+    private final long divisor;
+    private final boolean canonical;
+    /**
+     * Denomination values divided by {@link #divisor}, largest first.
+     */
+    private final int[] units;
+    /**
+     * For amounts below the table size, the index of one denomination in an optimal split, or -1 if the amount cannot
+     * be paid exactly. Empty for canonical sets.
+     */
+    private final byte[] lastDenomination;
+
+    /**
+     * Build the change maker for a set of denominations.
+     *
+     * @param values denomination values in cents, largest first, all positive
+     */
+    public ChangeMaker(long[] values) {
+        this.values = values.clone();
+
+        long gcd = 0;
+        for (long value : values) {
+            gcd = gcd(gcd, value);
+        }
+        this.divisor = Math.max(gcd, 1);
+
+        // denominations too large for a table are split greedily anyway
+        boolean small = values.length > 1 && values[0] / divisor < MAX_TABLE_SIZE;
+        this.units = new int[small ? values.length : 0];
+        for (int d = 0; d < units.length; d++) {
+            units[d] = (int) (values[d] / divisor);
+        }
+
+        if (!small || values.length > Byte.MAX_VALUE) {
+            this.canonical = true;
+            this.lastDenomination = new byte[0];
+            return;
+        }
+
+        // Kozen & Zaks: a set containing 1 is canonical iff greedy is optimal below the sum of the two largest
+        int checkLimit = units[0] + units[1];
+        byte[] table = solve((int) Math.min(Math.max((long) units[0] * units[1], checkLimit), MAX_TABLE_SIZE));
+
+        this.canonical = units[units.length - 1] == 1 && greedyIsOptimal(table, checkLimit);
+        this.lastDenomination = canonical ? new byte[0] : table;
+    }
+
+    /**
+     * Split an amount into the fewest items possible.
+     *
+     * @param amount amount in cents
+     * @param counts receives the number of items per denomination, largest first; must hold one entry per
+     *               denomination
+     * @return the part of the amount that cannot be paid with whole items
+     */
+    public long split(long amount, long[] counts) {
+        Arrays.fill(counts, 0);
+
+        if (amount <= 0 || values.length == 0) {
+            return Math.max(amount, 0);
+        }
+
+        if (canonical) {
+            return greedy(amount, counts);
+        }
+
+        long rest = amount % divisor;
+        long scaled = amount / divisor;
+        int tableSize = lastDenomination.length;
+
+        if (scaled >= tableSize) {
+            // beyond the table, an optimal split takes the largest denomination
+            long largest = (scaled - tableSize) / units[0] + 1;
+            counts[0] = largest;
+            scaled -= largest * units[0];
+        }
+
+        // if the amount can't be paid exactly, pay the closest smaller amount that can
+        int x = (int) scaled;
+        while (x > 0 && lastDenomination[x] < 0) {
+            x--;
+        }
+        rest += (scaled - x) * divisor;
+
+        while (x > 0) {
+            int d = lastDenomination[x];
+            counts[d]++;
+            x -= units[d];
+        }
+
+        return rest;
+    }
+
+    /**
+     * Whether the greedy largest-first split is optimal for this set of denominations.
+     *
+     * @return true if the denominations are canonical
+     */
+    public boolean isCanonical() {
+        return canonical;
+    }
+
+    /**
+     * Split greedily, largest denomination first.
+     *
+     * @return the part of the amount that could not be paid
+     */
+    private long greedy(long amount, long[] counts) {
+        long remaining = amount;
+
+        for (int d = 0; d < values.length && remaining > 0; d++) {
+            if (values[d] <= 0) {
+                continue;
+            }
+
+            counts[d] += remaining / values[d];
+            remaining %= values[d];
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Compute an optimal split for every scaled amount below the table size.
+     */
+    private byte[] solve(int size) {
+        int[] items = new int[size];
+        byte[] last = new byte[size];
+
+        Arrays.fill(items, Integer.MAX_VALUE);
+        Arrays.fill(last, (byte) -1);
+        items[0] = 0;
+
+        for (int x = 1; x < size; x++) {
+            for (int d = 0; d < units.length; d++) {
+                int before = x - units[d];
+
+                if (before >= 0 && items[before] != Integer.MAX_VALUE && items[before] + 1 < items[x]) {
+                    items[x] = items[before] + 1;
+                    last[x] = (byte) d;
+                }
+            }
+        }
+
+        return last;
+    }
+
+    private boolean greedyIsOptimal(byte[] table, int limit) {
+        int[] optimal = new int[Math.min(limit, table.length)];
+
+        for (int x = 1; x < optimal.length; x++) {
+            optimal[x] = optimal[x - units[table[x]]] + 1;
+
+            int greedyItems = 0;
+            int remaining = x;
+            for (int unit : units) {
+                if (unit <= 0) {
+                    continue;
+                }
+
+                greedyItems += remaining / unit;
+                remaining %= unit;
+            }
+
+            if (greedyItems > optimal[x]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+
+        return a;
+    }
+}
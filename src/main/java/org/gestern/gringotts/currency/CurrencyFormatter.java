@@ -0,0 +1,229 @@
+package org.gestern.gringotts.currency;
+
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders currency values the way {@link GringottsCurrency#format(String, double)} does with the pattern
+ * {@code "%.<digits>f %s"}, without going through {@link java.util.Formatter}. Values are rounded to cents once,
+ * digits are written straight into a character buffer and unit names are appended from prebuilt fragments. Recently
+ * formatted values are kept in a small direct-mapped cache, so balances that are shown over and over are not rendered
+ * again.
+ * <p>
+ * Plain values whose rounding is ambiguous at the last digit, that are very large, or that are not finite are handed
+ * to {@link String#format(String, Object...)}, so the output is always the same as the formatter's.
+ * <p>
+ * Instances are built once per compiled currency and are safe to use from any thread.
+ */
+public final class CurrencyFormatter {
+
+    /**
+     * Number of cache entries, a power of two.
+     */
+    private static final int CACHE_SIZE = 256;
+    /**
+     * Largest scaled value rendered directly. Beyond this, double arithmetic is no longer precise enough to
+     * reproduce the formatter's rounding.
+     */
+    private static final double MAX_SCALED = 1e12;
+    /**
+     * Scaled values this close to a rounding boundary are left to the formatter.
+     */
+    private static final double HALF_TOLERANCE = 1e-3;
+
+    private final int unit;
+    private final int digits;
+    private final String pattern;
+    private final String name;
+    private final String namePlural;
+    private final String singularSuffix;
+    private final String pluralSuffix;
+    private final char zeroDigit;
+    private final char decimalSeparator;
+
+    /**
+     * Denomination values in cents, largest first. Empty unless the currency shows named denominations.
+     */
+    private final long[] values;
+    private final String[] unitSuffixes;
+    private final String[] unitPluralSuffixes;
+    private final ChangeMaker changeMaker;
+
+    private final Entry[] cache = new Entry[CACHE_SIZE];
+
+    /**
+     * Build the formatter for a currency.
+     *
+     * @param currency      the currency, with all denominations added
+     * @param denominations denominations of the currency, largest first
+     * @param changeMaker   change maker for the denominations
+     */
+    CurrencyFormatter(GringottsCurrency currency, List<Denomination> denominations, ChangeMaker changeMaker) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+
+        this.unit = currency.getUnit();
+        this.digits = currency.getDigits();
+        this.pattern = "%." + digits + "f %s";
+        this.name = currency.getName();
+        this.namePlural = currency.getNamePlural();
+        this.singularSuffix = " " + name;
+        this.pluralSuffix = " " + namePlural;
+        this.zeroDigit = symbols.getZeroDigit();
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.changeMaker = changeMaker;
+
+        int named = currency.hasNamedDenominations() ? denominations.size() : 0;
+
+        this.values = new long[named];
+        this.unitSuffixes = new String[named];
+        this.unitPluralSuffixes = new String[named];
+
+        for (int d = 0; d < named; d++) {
+            Denomination denomination = denominations.get(d);
+
+            values[d] = denomination.getValue();
+            unitSuffixes[d] = " " + denomination.getUnitName();
+            unitPluralSuffixes[d] = " " + denomination.getUnitNamePlural();
+        }
+    }
+
+    /**
+     * The format string this formatter reproduces.
+     *
+     * @return the format string, such as {@code "%.2f %s"}
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Format a value in currency units, with the currency name or, if the currency shows named denominations, as a
+     * list of denomination items.
+     *
+     * @param value value in currency units
+     * @return the formatted value
+     */
+    public String format(double value) {
+        double scaled = value * unit;
+        long cents = Math.round(scaled);
+
+        // named denominations are split from the rounded cents, so only plain values need the formatter's rounding
+        if (values.length == 0 && needsFormatter(value, scaled, cents)) {
+            return String.format(pattern, value, value == 1.0 ? name : namePlural);
+        }
+
+        // with named denominations the text only depends on the cents, otherwise also on the exact value
+        boolean singular = values.length == 0 && value == 1.0;
+        int slot = index(cents);
+        Entry entry = cache[slot];
+
+        if (entry != null && entry.cents == cents && entry.singular == singular) {
+            return entry.text;
+        }
+
+        String text = values.length > 0 ? formatNamed(cents) : formatPlain(cents, singular);
+
+        cache[slot] = new Entry(cents, singular, text);
+
+        return text;
+    }
+
+    private String formatPlain(long cents, boolean singular) {
+        StringBuilder b = new StringBuilder(24 + namePlural.length());
+
+        appendAmount(b, cents);
+        b.append(singular ? singularSuffix : pluralSuffix);
+
+        return b.toString();
+    }
+
+    private String formatNamed(long cents) {
+        StringBuilder b = new StringBuilder();
+        long[] counts = new long[values.length];
+        long rest = changeMaker.split(cents, counts);
+
+        for (int d = 0; d < counts.length; d++) {
+            long count = counts[d];
+
+            if (count > 0) {
+                if (b.length() > 0) {
+                    b.append(", ");
+                }
+
+                b.append(count).append(count == 1L ? unitSuffixes[d] : unitPluralSuffixes[d]);
+            }
+        }
+
+        if (rest > 0 && b.length() > 0) {
+            b.append(", ");
+        }
+
+        // might need this check for fractional values
+        if (rest > 0 || b.length() == 0) {
+            appendAmount(b, rest);
+            b.append(rest == unit ? singularSuffix : pluralSuffix);
+        }
+
+        return b.toString();
+    }
+
+    /**
+     * Write an amount of cents as a decimal number with the currency's fractional digits.
+     */
+    private void appendAmount(StringBuilder b, long cents) {
+        // 19 digits, a separator and a sign at most
+        char[] buffer = new char[21];
+        int pos = buffer.length;
+        long magnitude = Math.abs(cents);
+
+        for (int i = 0; i < digits; i++) {
+            buffer[--pos] = (char) (zeroDigit + magnitude % 10);
+            magnitude /= 10;
+        }
+
+        if (digits > 0) {
+            buffer[--pos] = decimalSeparator;
+        }
+
+        do {
+            buffer[--pos] = (char) (zeroDigit + magnitude % 10);
+            magnitude /= 10;
+        } while (magnitude > 0);
+
+        if (cents < 0) {
+            buffer[--pos] = '-';
+        }
+
+        b.append(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * Whether rounding the scaled value might not give the same digits as the formatter, which rounds the shortest
+     * decimal representation of the value half up.
+     */
+    private static boolean needsFormatter(double value, double scaled, long cents) {
+        if (!(Math.abs(scaled) < MAX_SCALED)) {
+            return true;
+        }
+
+        if (Math.abs(Math.abs(scaled - Math.floor(scaled)) - 0.5) < HALF_TOLERANCE) {
+            return true;
+        }
+
+        // the formatter keeps the sign of negative values that round to zero
+        return cents == 0 && Math.copySign(1.0, value) < 0;
+    }
+
+    private static int index(long cents) {
+        long h = cents * 0x9E3779B97F4A7C15L;
+
+        return (int) (h >>> 32) & (CACHE_SIZE - 1);
+    }
+
+    /**
+     * Cached text of a value. Entries are immutable, so racing writers at worst replace each other's entry.
+     */
+    private record Entry(long cents, boolean singular, String text) {
+    }
+}
@@ -3,6 +3,7 @@ package org.gestern.gringotts.currency;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -19,6 +20,9 @@ import org.gestern.gringotts.Configuration;
  * The value is represented internally as "cents", that is, the smallest currency unit, and only gets transformed
  * into display value
  * for communication with the user or vault.
+ * <p>
+ * Denominations are added while the currency is being built. {@link #compile()} then freezes it into lookup tables,
+ * after which it is immutable and may be shared between threads once safely published.
  *
  * @author jast
  */
@@ -47,8 +51,28 @@ public class GringottsCurrency {
      * Show balances and other currency values with individual denomination names.
      */
     private final boolean namedDenominations;
-    private final Map<DenominationKey, Denomination> denoms = new HashMap<>();
-    private final List<Denomination> sortedDenoms = new ArrayList<>();
+    private Map<DenominationKey, Denomination> denoms = new HashMap<>();
+    private List<Denomination> sortedDenoms = new ArrayList<>();
+    /**
+     * Index of each denomination in {@link #sortedDenoms}. Filled by {@link #compile()}.
+     */
+    private Map<Denomination, Integer> indexes = Collections.emptyMap();
+    /**
+     * Denominations in order of descending value. Filled by {@link #compile()}.
+     */
+    private Denomination[] denominationArray = new Denomination[0];
+    /**
+     * Value of the smallest denomination in cents, or 0 if there is none. Filled by {@link #compile()}.
+     */
+    private long smallestValue;
+    /**
+     * Splits amounts into denominations. Built by {@link #compile()}.
+     */
+    private ChangeMaker changeMaker;
+    /**
+     * Renders values with the default pattern. Built by {@link #compile()}.
+     */
+    private CurrencyFormatter formatter;
 
     /**
      * Create currency.
@@ -79,6 +103,10 @@ public class GringottsCurrency {
      * @param unitNamePlural the unit name plural
      */
     public void addDenomination(ItemStack type, double value, String unitName, String unitNamePlural) {
+        if (changeMaker != null) {
+            throw new IllegalStateException("Currency " + name + " is already compiled");
+        }
+
         DenominationKey k = new DenominationKey(type);
         Denomination d = new Denomination(k, getCentValue(value), unitName, unitNamePlural);
         denoms.put(k, d);
@@ -87,6 +115,83 @@ public class GringottsCurrency {
         Collections.sort(sortedDenoms);
     }
 
+    /**
+     * Freeze the denominations and precompute the lookup tables and the split of amounts into denominations, once all
+     * denominations have been added. Further calls have no effect.
+     */
+    public void compile() {
+        if (changeMaker != null) {
+            return;
+        }
+
+        Denomination[] sorted = sortedDenoms.toArray(new Denomination[0]);
+        long[] values = new long[sorted.length];
+        Map<Denomination, Integer> index = new IdentityHashMap<>();
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = sorted[i].getValue();
+            index.put(sorted[i], i);
+        }
+
+        denoms = Map.copyOf(denoms);
+        sortedDenoms = List.of(sorted);
+        indexes = Collections.unmodifiableMap(index);
+        denominationArray = sorted;
+        smallestValue = values.length == 0 ? 0 : values[values.length - 1];
+        ChangeMaker maker = new ChangeMaker(values);
+        formatter = new CurrencyFormatter(this, sortedDenoms, maker);
+        // set last, a change maker marks the currency as compiled
+        changeMaker = maker;
+    }
+
+    /**
+     * Splitter of amounts into the fewest items of this currency's denominations. The split counts are indexed like
+     * {@link #getDenominations()}.
+     *
+     * @return the change maker for this currency's denominations
+     */
+    public ChangeMaker getChangeMaker() {
+        if (changeMaker == null) {
+            compile();
+        }
+
+        return changeMaker;
+    }
+
+    /**
+     * Formatter for values of this currency with the default pattern {@code "%.<digits>f %s"}.
+     *
+     * @return the formatter for this currency
+     */
+    public CurrencyFormatter getFormatter() {
+        if (formatter == null) {
+            compile();
+        }
+
+        return formatter;
+    }
+
+    /**
+     * Position of a denomination in {@link #getDenominations()}.
+     *
+     * @param denomination a denomination of this currency
+     * @return index of the denomination, or -1 if it doesn't belong to this currency
+     */
+    public int indexOf(Denomination denomination) {
+        Integer index = indexes.get(denomination);
+
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Value of the smallest denomination of this currency.
+     *
+     * @return value of the smallest denomination in cents, 0 if the currency has no denominations
+     */
+    public long getSmallestDenominationValue() {
+        return smallestValue;
+    }
+
 
     /**
      * Get the value of an item stack in cents.
@@ -101,24 +206,41 @@ public class GringottsCurrency {
             return 0;
         }
 
-        if (Configuration.CONF.includeShulkerBoxes && Tag.SHULKER_BOXES.isTagged(stack.getType())) {
-            if (stack.getItemMeta() instanceof BlockStateMeta) {
-                BlockStateMeta blockState = (BlockStateMeta) stack.getItemMeta();
-                if (blockState.getBlockState() instanceof ShulkerBox) {
-                    ShulkerBox shulker       = (ShulkerBox) blockState.getBlockState();
-                    long       returnedValue = 0;
+        if (Configuration.CONF.includeShulkerBoxes && isShulkerBox(stack)) {
+            return getShulkerValue(stack);
+        }
 
-                    for (ItemStack content : shulker.getInventory().getContents()) {
-                        returnedValue += getValue(content);
-                    }
+        Denomination d = getDenominationOf(stack);
+        return d != null ? d.getValue() * stack.getAmount() : 0;
+    }
 
-                    return returnedValue;
-                }
+    /**
+     * Get the value in cents of the currency items contained in a shulker box item.
+     *
+     * @param stack a shulker box item
+     * @return the value of the currency items inside the box, 0 if it holds none or is not a shulker box
+     */
+    public long getShulkerValue(ItemStack stack) {
+        long value = 0;
+
+        if (stack.getItemMeta() instanceof BlockStateMeta blockState
+                && blockState.getBlockState() instanceof ShulkerBox shulker) {
+            for (ItemStack content : shulker.getInventory().getContents()) {
+                value += getValue(content);
             }
         }
 
-        Denomination d = getDenominationOf(stack);
-        return d != null ? d.getValue() * stack.getAmount() : 0;
+        return value;
+    }
+
+    /**
+     * Check whether an item stack is a shulker box.
+     *
+     * @param stack the stack to check
+     * @return true if the stack is any kind of shulker box
+     */
+    public static boolean isShulkerBox(ItemStack stack) {
+        return stack != null && Tag.SHULKER_BOXES.isTagged(stack.getType());
     }
 
     /**
@@ -148,7 +270,17 @@ public class GringottsCurrency {
      * @return Unmodifiable List of denominations used in this currency, in order of descending value
      */
     public List<Denomination> getDenominations() {
-        return Collections.unmodifiableList(sortedDenoms);
+        return changeMaker != null ? sortedDenoms : Collections.unmodifiableList(sortedDenoms);
+    }
+
+    /**
+     * Format a value with the default pattern {@code "%.<digits>f %s"}.
+     *
+     * @param value the value in currency units
+     * @return the formatted value
+     */
+    public String format(double value) {
+        return getFormatter().format(value);
     }
 
     /**
@@ -159,27 +291,38 @@ public class GringottsCurrency {
      * @return the string
      */
     public String format(String formatString, double value) {
+        CurrencyFormatter defaultFormatter = getFormatter();
+
+        if (defaultFormatter.getPattern().equals(formatString)) {
+            return defaultFormatter.format(value);
+        }
 
         if (namedDenominations) {
 
             StringBuilder b = new StringBuilder();
 
-            long cv = getCentValue(value);
+            ChangeMaker maker = getChangeMaker();
+            long[] counts = new long[denominationArray.length];
+            long cv = maker.split(getCentValue(value), counts);
 
-            for (Denomination denom : sortedDenoms) {
-                long dv = cv / denom.getValue();
-                cv %= denom.getValue();
+            for (int i = 0; i < counts.length; i++) {
+                long dv = counts[i];
 
                 if (dv > 0) {
-                    String display = dv + " " + (dv == 1L ? denom.getUnitName() : denom.getUnitNamePlural());
-                    b.append(display);
+                    Denomination denom = denominationArray[i];
 
-                    if (cv > 0) {
+                    if (b.length() > 0) {
                         b.append(", ");
                     }
+
+                    b.append(dv).append(' ').append(dv == 1L ? denom.getUnitName() : denom.getUnitNamePlural());
                 }
             }
 
+            if (cv > 0 && b.length() > 0) {
+                b.append(", ");
+            }
+
             // might need this check for fractional values
             if (cv > 0 || b.length() == 0) {
                 double displayVal = getDisplayValue(cv);
@@ -199,7 +342,7 @@ public class GringottsCurrency {
      * @param stack the stack to get the denomination for
      * @return denomination for the item stack, or null if there is no such denomination
      */
-    private Denomination getDenominationOf(ItemStack stack) {
+    public Denomination getDenominationOf(ItemStack stack) {
         DenominationKey d = new DenominationKey(stack);
         if(Configuration.CONF.custommodeldataOnly) {
             for(Denomination dthis : getDenominations()){
@@ -243,6 +386,15 @@ public class GringottsCurrency {
         return unit;
     }
 
+    /**
+     * Whether values are shown with individual denomination names.
+     *
+     * @return true if the currency shows named denominations
+     */
+    public boolean hasNamedDenominations() {
+        return namedDenominations;
+    }
+
     /**
      * Name of the currency.
      *
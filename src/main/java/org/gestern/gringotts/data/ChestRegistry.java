@@ -0,0 +1,157 @@
+package org.gestern.gringotts.data;
+
+import org.bukkit.World;
+import org.gestern.gringotts.AccountChest;
+import org.gestern.gringotts.GringottsAccount;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Registered account chests, published as immutable snapshots.
+ * <p>
+ * Readers get the current snapshot without locking and may iterate it while chests are added or removed, they just
+ * do not see those changes. Writers copy the snapshot, change the copy and publish it under the registry's own lock.
+ * Chests are rarely created or removed compared to how often they are read, so copying is cheap overall.
+ */
+final class ChestRegistry {
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), Map.of(), false);
+
+    /**
+     * Whether all chests have been loaded from storage.
+     */
+    boolean isLoaded() {
+        return snapshot.loaded;
+    }
+
+    /**
+     * All registered chests.
+     *
+     * @return unmodifiable snapshot of the registered chests
+     */
+    List<AccountChest> all() {
+        return snapshot.chests;
+    }
+
+    /**
+     * Registered chests of an account.
+     *
+     * @param account the account
+     * @return unmodifiable snapshot of the account's chests
+     */
+    List<AccountChest> of(GringottsAccount account) {
+        return snapshot.byAccount.getOrDefault(new Key(account), List.of());
+    }
+
+    /**
+     * Registered chests whose sign is in a chunk.
+     *
+     * @param world  world of the chunk
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @return unmodifiable snapshot of the chests in the chunk
+     */
+    List<AccountChest> in(World world, int chunkX, int chunkZ) {
+        return snapshot.byChunk.getOrDefault(new ChunkKey(world.getUID(), chunkX, chunkZ), List.of());
+    }
+
+    /**
+     * Replace all chests with the ones loaded from storage. More may be added before the registry is marked as
+     * loaded.
+     */
+    synchronized void load(Collection<AccountChest> chests) {
+        publish(new ArrayList<>(chests), snapshot.loaded);
+    }
+
+    /**
+     * Mark the registry as holding all stored chests.
+     */
+    synchronized void markLoaded() {
+        publish(new ArrayList<>(snapshot.chests), true);
+    }
+
+    synchronized void add(AccountChest chest) {
+        List<AccountChest> chests = new ArrayList<>(snapshot.chests);
+
+        chests.add(chest);
+
+        publish(chests, snapshot.loaded);
+    }
+
+    /**
+     * Add several chests at once, publishing a single snapshot for all of them.
+     *
+     * @param added the chests to add
+     */
+    synchronized void addAll(Collection<AccountChest> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+
+        List<AccountChest> chests = new ArrayList<>(snapshot.chests.size() + added.size());
+
+        chests.addAll(snapshot.chests);
+        chests.addAll(added);
+
+        publish(chests, snapshot.loaded);
+    }
+
+    /**
+     * Remove all chests matching a condition.
+     *
+     * @return the removed chests
+     */
+    synchronized List<AccountChest> removeIf(Predicate<AccountChest> condition) {
+        List<AccountChest> kept    = new ArrayList<>(snapshot.chests.size());
+        List<AccountChest> removed = new ArrayList<>();
+
+        for (AccountChest chest : snapshot.chests) {
+            (condition.test(chest) ? removed : kept).add(chest);
+        }
+
+        if (!removed.isEmpty()) {
+            publish(kept, snapshot.loaded);
+        }
+
+        return removed;
+    }
+
+    private void publish(List<AccountChest> chests, boolean loaded) {
+        Map<Key, List<AccountChest>>      byAccount = new HashMap<>();
+        Map<ChunkKey, List<AccountChest>> byChunk   = new HashMap<>();
+
+        for (AccountChest chest : chests) {
+            byAccount.computeIfAbsent(new Key(chest.account), key -> new ArrayList<>()).add(chest);
+            byChunk.computeIfAbsent(new ChunkKey(chest), key -> new ArrayList<>()).add(chest);
+        }
+
+        byAccount.replaceAll((key, list) -> Collections.unmodifiableList(list));
+        byChunk.replaceAll((key, list) -> Collections.unmodifiableList(list));
+
+        snapshot = new Snapshot(Collections.unmodifiableList(chests), byAccount, byChunk, loaded);
+    }
+
+    private record Snapshot(List<AccountChest> chests,
+                            Map<Key, List<AccountChest>> byAccount,
+                            Map<ChunkKey, List<AccountChest>> byChunk,
+                            boolean loaded) {
+    }
+
+    private record Key(String type, String id) {
+        Key(GringottsAccount account) {
+            this(account.owner.getType(), account.owner.getId());
+        }
+    }
+
+    private record ChunkKey(UUID world, int x, int z) {
+        ChunkKey(AccountChest chest) {
+            this(chest.sign.getWorld().getUID(), chest.sign.getX() >> 4, chest.sign.getZ() >> 4);
+        }
+    }
+}
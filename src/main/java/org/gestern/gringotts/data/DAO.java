@@ -1,14 +1,20 @@
 package org.gestern.gringotts.data;
 
+import org.bukkit.World;
 import org.gestern.gringotts.AccountChest;
 import org.gestern.gringotts.GringottsAccount;
-import org.gestern.gringotts.GringottsStorageException;
 import org.gestern.gringotts.accountholder.AccountHolder;
 
 import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * The interface Dao.
+ * <p>
+ * All changes are queued on the storage writer and applied one at a time in the order they were made, so writes to
+ * the same rows never overtake each other. Reads made after a change already see it. Queued writes cannot report
+ * failure to the caller; failed writes are logged.
  */
 @SuppressWarnings({"UnusedReturnValue", "unused"})
 public interface DAO {
@@ -16,32 +22,29 @@ public interface DAO {
      * Store a new account chest to database.
      *
      * @param chest chest to store
-     * @return true if chest was stored, false otherwise
-     * @throws GringottsStorageException when storage failed
      */
-    boolean storeAccountChest(AccountChest chest);
+    void storeAccountChest(AccountChest chest);
 
     /**
-     * Update a chest's balance oin the database
+     * Update a chest's balance oin the database. Updates made during a tick are coalesced per chest and queued
+     * once at the end of it.
      * @param chest chest to update
      * @param balance chest's new balance
-     * @return true if update was successful, false otherwise
      */
-    boolean updateChestBalance(AccountChest chest, long balance);
+    void updateChestBalance(AccountChest chest, long balance);
 
     /**
      * Deletes an account chest from the datastore.
      *
      * @param chest chest to delete
-     * @return true if the chest was deleted, false if no chest was deleted.
      */
-    boolean deleteAccountChest(AccountChest chest);
+    void deleteAccountChest(AccountChest chest);
 
     /**
      * Store the given Account to DB.
      *
      * @param account account to store
-     * @return true if an account was stored, false if it already existed
+     * @return true if a new account is stored, false if it already existed
      */
     boolean storeAccount(GringottsAccount account);
 
@@ -59,9 +62,8 @@ public interface DAO {
      * @param type    the type
      * @param holder  the holder
      * @param newName the new name
-     * @return the boolean
      */
-    boolean renameAccount(String type, AccountHolder holder, String newName);
+    void renameAccount(String type, AccountHolder holder, String newName);
 
     /**
      * Rename account boolean.
@@ -69,13 +71,13 @@ public interface DAO {
      * @param type    the type
      * @param oldName the old name
      * @param newName the new name
-     * @return the boolean
      */
-    boolean renameAccount(String type, String oldName, String newName);
+    void renameAccount(String type, String oldName, String newName);
 
     /**
      * Get set of all chests registered with Gringotts.
      * If a stored chest turns out to be invalid, that chest may be removed from storage.
+     * The result is an unmodifiable snapshot that may be iterated while chests are added or removed.
      *
      * @return set of all chests registered with Gringotts
      */
@@ -83,7 +85,7 @@ public interface DAO {
 
     /**
      * Get all chests belonging to the given account.
-     * If a stored chest turns out to be invalid, that chest is removed from storage.
+     * While the chests are still being loaded from storage, chests in chunks that were not loaded yet are missing.
      *
      * @param account account to fetch chests for.
      * @return account to get chests for
@@ -91,14 +93,27 @@ public interface DAO {
     Collection<AccountChest> retrieveChests(GringottsAccount account);
 
     /**
-     * Gets accounts.
+     * Get all chests whose sign is in the given chunk.
+     * The result is an unmodifiable snapshot that may be iterated while chests are added or removed.
+     *
+     * @param world  world of the chunk
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @return chests with their sign in the chunk
+     */
+    Collection<AccountChest> retrieveChests(World world, int chunkX, int chunkZ);
+
+    /**
+     * Gets accounts as type:owner strings. This holds all accounts in memory at once, prefer
+     * {@link #forEachAccount(BiConsumer)} for large databases.
      *
      * @return the accounts
      */
     Collection<String> getAccounts();
 
     /**
-     * Gets accounts.
+     * Gets accounts of a type as type:owner strings. This holds all accounts of the type in memory at once, prefer
+     * {@link #forEachAccount(String, Consumer)} for large databases.
      *
      * @param type the type
      * @return the accounts
@@ -106,54 +121,75 @@ public interface DAO {
     Collection<String> getAccounts(String type);
 
     /**
-     * Store an amount of cents to a given account.
+     * Pass every stored account to a consumer while iterating over the query results, without collecting them.
+     *
+     * @param consumer receives type and owner id of each account
+     */
+    void forEachAccount(BiConsumer<String, String> consumer);
+
+    /**
+     * Pass every stored account of a type to a consumer while iterating over the query results, without collecting
+     * them.
+     *
+     * @param type     the type
+     * @param consumer receives the owner id of each account
+     */
+    void forEachAccount(String type, Consumer<String> consumer);
+
+    /**
+     * Store an amount of cents to a given account. The write is queued, but is visible to subsequent reads
+     * immediately. Of several queued writes to one account, only the latest is applied.
      *
      * @param account account to store amount to
      * @param amount  amount to store to account
-     * @return true if storing was successful, false otherwise.
      */
-    boolean storeCents(GringottsAccount account, long amount);
+    void storeCents(GringottsAccount account, long amount);
 
     /**
-     * Get the cents stored for a given account.
+     * Get the cents stored for a given account. Cents are kept in memory once an account was read or written, so
+     * only the first read of an account waits for the database.
      *
      * @param account account to query
      * @return amount of cents stored in the account, 0 if the account is not stored
      */
     long retrieveCents(GringottsAccount account);
 
+    /**
+     * Get the cents stored for a given account plus the stored balances of all its chests, in a single query.
+     *
+     * @param account account to query
+     * @return stored balance of the account, 0 if the account is not stored
+     */
+    long retrieveStoredBalance(GringottsAccount account);
+
     /**
      * Delete an account and associated data from the storage.
      *
      * @param acc account to delete
-     * @return the boolean
      */
-    boolean deleteAccount(GringottsAccount acc);
+    void deleteAccount(GringottsAccount acc);
 
     /**
-     * Delete account boolean.
+     * Delete account.
      *
      * @param type    the type
      * @param account the account
-     * @return the boolean
      */
-    boolean deleteAccount(String type, String account);
+    void deleteAccount(String type, String account);
 
     /**
-     * Delete account chests boolean.
+     * Delete account chests.
      *
      * @param acc the acc
-     * @return the boolean
      */
-    boolean deleteAccountChests(GringottsAccount acc);
+    void deleteAccountChests(GringottsAccount acc);
 
     /**
-     * Delete account chests boolean.
+     * Delete account chests.
      *
      * @param account the account
-     * @return the boolean
      */
-    boolean deleteAccountChests(String account);
+    void deleteAccountChests(String account);
 
     /**
      * Delete account chests
@@ -161,9 +197,39 @@ public interface DAO {
      * @param x
      * @param y
      * @param z
-     * @return boolean indicating success or failure
      */
-    boolean deleteAccountChest(String world, int x, int y, int z);
+    void deleteAccountChest(String world, int x, int y, int z);
+
+    /**
+     * Get all memberships of all banks.
+     *
+     * @return memberships of all banks
+     */
+    Collection<EBeanBankMember> retrieveBankMembers();
+
+    /**
+     * Pass every membership of every bank to a consumer while iterating over the query results, without collecting
+     * them.
+     *
+     * @param consumer receives each membership
+     */
+    void forEachBankMember(Consumer<EBeanBankMember> consumer);
+
+    /**
+     * Store a bank membership, replacing an existing membership of the same player in the same bank.
+     *
+     * @param bank   name of the bank
+     * @param member player UUID of the member
+     * @param owner  whether the member owns the bank
+     */
+    void storeBankMember(String bank, String member, boolean owner);
+
+    /**
+     * Delete all memberships of a bank.
+     *
+     * @param bank name of the bank
+     */
+    void deleteBankMembers(String bank);
 
     /**
      * Shutdown the database connection.
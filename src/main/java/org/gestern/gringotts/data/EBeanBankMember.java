@@ -0,0 +1,68 @@
+package org.gestern.gringotts.data;
+
+import io.ebean.annotation.NotNull;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+@SuppressWarnings("unused")
+@Entity
+@Table(name = "gringotts_bank_member")
+@UniqueConstraint(columnNames = {"bank", "member"})
+public class EBeanBankMember {
+    @Id
+    int id;
+    /**
+     * Name of the bank, the owner id of its account.
+     */
+    @NotNull
+    String bank;
+    /**
+     * Player UUID of the member.
+     */
+    @NotNull
+    String member;
+    /**
+     * Whether the member also owns the bank.
+     */
+    @NotNull
+    boolean owner;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getBank() {
+        return bank;
+    }
+
+    public void setBank(String bank) {
+        this.bank = bank;
+    }
+
+    public String getMember() {
+        return member;
+    }
+
+    public void setMember(String member) {
+        this.member = member;
+    }
+
+    public boolean isOwner() {
+        return owner;
+    }
+
+    public void setOwner(boolean owner) {
+        this.owner = owner;
+    }
+
+    @Override
+    public String toString() {
+        return "EBeanBankMember(" + bank + ": " + member + (owner ? ", owner" : "") + ")";
+    }
+}
@@ -1,13 +1,22 @@
 package org.gestern.gringotts.data;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -18,12 +27,13 @@ import org.gestern.gringotts.AccountChest;
 import org.gestern.gringotts.Gringotts;
 import org.gestern.gringotts.GringottsAccount;
 import org.gestern.gringotts.Util;
+import org.gestern.gringotts.VaultTotals;
 import org.gestern.gringotts.accountholder.AccountHolder;
 import org.gestern.gringotts.event.CalculateStartBalanceEvent;
+import org.gestern.gringotts.maintenance.VaultReconciler;
 
 import io.ebean.Database;
 import io.ebean.SqlQuery;
-import io.ebean.SqlRow;
 import io.ebean.SqlUpdate;
 
 /**
@@ -33,9 +43,44 @@ public class EBeanDAO implements DAO {
     private static EBeanDAO dao;
     private final Database db = Gringotts.instance.getDatabase();
     private final Logger log = Gringotts.instance.getLogger();
+    private final StorageExecutor storage = Gringotts.instance.getStorageExecutor();
+    /**
+     * Most accounts cached at once in {@link #cents}. Beyond this, entries without a queued change are evicted.
+     */
+    private static final int MAX_CACHED_CENTS = 10_000;
+
+    /**
+     * Cents of recently read or written accounts, by account. Changes update this before their write is queued,
+     * so it always holds the latest cents and reads never wait for queued writes. Entries of accounts with a
+     * queued change are kept until it is written, others may be evicted.
+     */
+    private final ConcurrentMap<String, Long> cents = new ConcurrentHashMap<>();
+    /**
+     * Number of cents and account changes written so far, so that a read can tell whether a write finished while it
+     * was reading.
+     */
+    private final AtomicLong centsWritten = new AtomicLong();
+    /**
+     * Latest queued cents write per account. Writes that were overtaken by a later one are skipped.
+     */
+    private final ConcurrentMap<String, PendingCents> pendingCents = new ConcurrentHashMap<>();
+    /**
+     * Whether accounts with queued creations, deletions or renames exist, by account.
+     */
+    private final ConcurrentMap<String, PendingAccount> pendingAccounts = new ConcurrentHashMap<>();
+    /**
+     * Locks striped by account, held while checking whether an account exists and queueing its creation.
+     */
+    private final Object[] accountLocks = locks(64);
+    /**
+     * Chest balances changed during the current tick, written together at the end of it. A chest that changes many
+     * times in one tick, such as a vault fed by a hopper chain, is written only once.
+     */
+    private final Map<AccountChest, Long> dirtyBalances = new LinkedHashMap<>();
 
 
-    private List<AccountChest> allChests = new LinkedList<>();
+    private final ChestRegistry chests = new ChestRegistry();
+    private boolean loadStarted;
 
     /**
      * Gets dao.
@@ -58,12 +103,13 @@ public class EBeanDAO implements DAO {
      * @return the database classes
      */
     public static List<Class<?>> getDatabaseClasses() {
-        return Arrays.asList(EBeanAccount.class, EBeanAccountChest.class, EBeanPendingOperation.class);
+        return Arrays.asList(EBeanAccount.class, EBeanAccountChest.class, EBeanPendingOperation.class, EBeanBankMember.class);
     }
 
     @Override
-    public synchronized boolean storeAccountChest(AccountChest chest) {
-        allChests.add(chest);
+    public void storeAccountChest(AccountChest chest) {
+        chests.add(chest);
+        Gringotts.instance.getVaultTotals().track(chest);
 
         SqlUpdate storeChest = db.sqlUpdate(
             "insert into gringotts_accountchest (world,x,y,z,account,total_value) " +
@@ -80,18 +126,48 @@ public class EBeanDAO implements DAO {
         storeChest.setParameter("type", chest.account.owner.getType());
         storeChest.setParameter("total_value", chest.getCachedBalance());
 
-        return storeChest.execute() > 0;
+        storage.write(storeChest::execute);
     }
 
     @Override
-    public synchronized boolean deleteAccountChest(AccountChest chest) {
+    public void deleteAccountChest(AccountChest chest) {
         Sign mark = chest.sign;
 
-        return deleteAccountChest(mark.getWorld().getName(), mark.getX(), mark.getY(), mark.getZ());
+        deleteAccountChest(mark.getWorld().getName(), mark.getX(), mark.getY(), mark.getZ());
     }
 
     @Override
-    public synchronized boolean storeAccount(GringottsAccount account) {
+    public boolean storeAccount(GringottsAccount account) {
+        if (!createAccount(account)) {
+            return false;
+        }
+
+        // the start balance is added once the creation is queued and without holding its lock, since adding may
+        // wait for the main thread
+        CalculateStartBalanceEvent startBalanceEvent = new CalculateStartBalanceEvent(account.owner);
+
+        Bukkit.getPluginManager().callEvent(startBalanceEvent);
+
+        if (startBalanceEvent.startValue > 0) account.add(startBalanceEvent.startValue);
+
+        return true;
+    }
+
+    /**
+     * Queue the creation of an account, unless it exists. Creations are checked and queued under a lock striped by
+     * account, so that lookups of different accounts do not wait for each other.
+     *
+     * @return true if the account was created
+     */
+    private boolean createAccount(GringottsAccount account) {
+        String key = centsKey(account);
+
+        synchronized (accountLocks[Math.floorMod(key.hashCode(), accountLocks.length)]) {
+            return createAccount(account, key);
+        }
+    }
+
+    private boolean createAccount(GringottsAccount account, String key) {
         AccountHolder owner = account.owner;
 
         if (hasAccount(owner)) {
@@ -141,19 +217,19 @@ public class EBeanDAO implements DAO {
         acc.setOwner(owner.getId());
         acc.setType(owner.getType());
 
-        CalculateStartBalanceEvent startBalanceEvent = new CalculateStartBalanceEvent(account.owner);
-
-        Bukkit.getPluginManager().callEvent(startBalanceEvent);
-
-        if (startBalanceEvent.startValue > 0) account.add(startBalanceEvent.startValue);
-
-        db.save(acc);
+        queueAccountChange(key, true, 0L, () -> db.save(acc));
 
         return true;
     }
 
     @Override
-    public synchronized boolean hasAccount(AccountHolder accountHolder) {
+    public boolean hasAccount(AccountHolder accountHolder) {
+        PendingAccount pending = pendingAccounts.get(centsKey(accountHolder.getType(), accountHolder.getId()));
+
+        if (pending != null) {
+            return pending.exists;
+        }
+
         return db
             .find(EBeanAccount.class).where()
             .ieq("type", accountHolder.getType())
@@ -187,73 +263,182 @@ public class EBeanDAO implements DAO {
     }
 
     @Override
-    public synchronized Collection<AccountChest> retrieveChests() {
-        if (!allChests.isEmpty()) return allChests;
+    public Collection<AccountChest> retrieveChests() {
+        startLoading();
 
-        List<SqlRow> result = db.sqlQuery(
-                "SELECT ac.world, ac.x, ac.y, ac.z, a.type, a.owner, ac.total_value FROM gringotts_accountchest ac JOIN gringotts_account a ON ac.account = a.id "
-        ).findList();
+        return chests.all();
+    }
 
-        List<AccountChest> chests = new LinkedList<>();
+    @Override
+    public Collection<AccountChest> retrieveChests(World world, int chunkX, int chunkZ) {
+        startLoading();
 
-        for (SqlRow c : result) {
-            String worldName = c.getString("world");
-            int x = c.getInteger("x");
-            int y = c.getInteger("y");
-            int z = c.getInteger("z");
+        return chests.in(world, chunkX, chunkZ);
+    }
 
-            String type = c.getString("type");
-            String ownerId = c.getString("owner");
+    /**
+     * Start loading the chests from storage, unless that already happened.
+     */
+    private void startLoading() {
+        if (chests.isLoaded()) {
+            return;
+        }
 
-            World world = Bukkit.getWorld(worldName);
-            if (world == null) {
-                continue; // skip vaults in non-existing worlds
+        synchronized (this) {
+            if (!loadStarted) {
+                loadStarted = true;
+                loadChests();
             }
+        }
+    }
 
-            Block signBlock = world.getBlockAt(x, y, z);
-            Optional<Sign> optionalSign = Util.getBlockStateAs(
-                    signBlock,
-                    Sign.class
+    /**
+     * Load all chests from storage into the registry, deleting the ones that are no longer valid.
+     * Chests in unloaded chunks are loaded once the reconciler has loaded their chunks asynchronously, and the
+     * registry is only marked as complete after that.
+     */
+    private void loadChests() {
+        List<AccountChest>                 loaded   = new ArrayList<>();
+        List<ChestLocation>                invalid  = new ArrayList<>();
+        Map<ChunkLocation, List<ChestRow>> deferred = new LinkedHashMap<>();
+
+        db.sqlQuery(
+                "SELECT ac.world, ac.x, ac.y, ac.z, a.type, a.owner, ac.total_value FROM gringotts_accountchest ac JOIN gringotts_account a ON ac.account = a.id "
+        ).findEach(c -> {
+            ChestRow row = new ChestRow(
+                    c.getString("world"),
+                    c.getInteger("x"),
+                    c.getInteger("y"),
+                    c.getInteger("z"),
+                    c.getString("type"),
+                    c.getString("owner"),
+                    c.getLong("total_value")
             );
 
-            if (optionalSign.isPresent()) {
-                AccountHolder owner = Gringotts.instance.getAccountHolderFactory().get(type, ownerId);
-
-                if (owner == null) {
-                    log.info(String.format(
-                            "AccountHolder %s:%s is not valid. Deleting associated account chest at %s",
-                            type,
-                            ownerId,
-                            signBlock.getLocation()
-                    ));
-
-                    deleteAccountChest(
-                            signBlock.getWorld().getName(),
-                            signBlock.getX(),
-                            signBlock.getY(),
-                            signBlock.getZ()
-                    );
-                } else {
-                    long theoreticalBalance = c.getLong("total_value");
-                    GringottsAccount ownerAccount = new GringottsAccount(owner);
-                    AccountChest chest = new AccountChest(optionalSign.get(), ownerAccount, theoreticalBalance);
-                    chests.add(chest);
-
-                    checkAndLogBalance(chest, theoreticalBalance, ownerId, worldName, x, y, z);
+            World world = Bukkit.getWorld(row.world());
+            if (world == null) {
+                return; // skip vaults in non-existing worlds
+            }
+
+            if (!world.isChunkLoaded(row.x() >> 4, row.z() >> 4)) {
+                deferred.computeIfAbsent(new ChunkLocation(row.world(), row.x() >> 4, row.z() >> 4),
+                        chunk -> new ArrayList<>()).add(row);
+
+                return;
+            }
+
+            AccountChest chest = loadChest(world, row, invalid);
+
+            if (chest != null) {
+                loaded.add(chest);
+            }
+        });
+
+        deleteAccountChests(invalid);
+
+        VaultTotals totals = Gringotts.instance.getVaultTotals();
+
+        for (AccountChest chest : loaded) {
+            totals.track(chest);
+        }
+
+        chests.load(loaded);
+
+        VaultReconciler               reconciler = Gringotts.instance.getVaultReconciler();
+        List<CompletableFuture<Void>> pending    = new ArrayList<>();
+
+        int deferredChests = 0;
+
+        // the chests of a chunk are published together, so the registry is copied once per chunk
+        for (Map.Entry<ChunkLocation, List<ChestRow>> entry : deferred.entrySet()) {
+            ChunkLocation  chunk = entry.getKey();
+            List<ChestRow> rows  = entry.getValue();
+            World          world = Bukkit.getWorld(chunk.world());
+
+            deferredChests += rows.size();
+
+            pending.add(reconciler.whenLoaded(world, chunk.x(), chunk.z(), () -> {
+                List<AccountChest>  loadedInChunk  = new ArrayList<>(rows.size());
+                List<ChestLocation> invalidInChunk = new ArrayList<>();
+
+                for (ChestRow row : rows) {
+                    AccountChest chest = loadChest(world, row, invalidInChunk);
+
+                    if (chest != null) {
+                        loadedInChunk.add(chest);
+                    }
+                }
+
+                deleteAccountChests(invalidInChunk);
+
+                for (AccountChest chest : loadedInChunk) {
+                    totals.track(chest);
                 }
-            } else {
-                // remove accountchest from storage if it is not a valid chest
-                deleteAccountChest(worldName, x, y, z);
+
+                chests.addAll(loadedInChunk);
+            }));
+        }
+
+        if (deferredChests > 0) {
+            log.info("Loading " + deferredChests + " vaults in " + deferred.size()
+                    + " unloaded chunks in the background.");
+        }
+
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.log(Level.WARNING, "Some vaults could not be loaded.", error);
             }
+
+            chests.markLoaded();
+            totals.markLoaded();
+        });
+    }
+
+    /**
+     * Create the chest for a stored row and check its balance. The chest's chunk is loaded.
+     *
+     * @param invalid receives the location if the chest is no longer valid
+     * @return the chest, or null if it is not valid
+     */
+    private AccountChest loadChest(World world, ChestRow row, List<ChestLocation> invalid) {
+        Block signBlock = world.getBlockAt(row.x(), row.y(), row.z());
+        Optional<Sign> optionalSign = Util.getBlockStateAs(
+                signBlock,
+                Sign.class
+        );
+
+        if (optionalSign.isEmpty()) {
+            // remove accountchest from storage if it is not a valid chest
+            invalid.add(new ChestLocation(row.world(), row.x(), row.y(), row.z()));
+
+            return null;
+        }
+
+        AccountHolder owner = Gringotts.instance.getAccountHolderFactory().get(row.type(), row.owner());
+
+        if (owner == null) {
+            log.info(String.format(
+                    "AccountHolder %s:%s is not valid. Deleting associated account chest at %s",
+                    row.type(),
+                    row.owner(),
+                    signBlock.getLocation()
+            ));
+
+            invalid.add(new ChestLocation(row.world(), row.x(), row.y(), row.z()));
+
+            return null;
         }
 
-        allChests = chests;
+        GringottsAccount ownerAccount = new GringottsAccount(owner);
+        AccountChest chest = new AccountChest(optionalSign.get(), ownerAccount, row.totalValue());
 
-        return chests;
+        checkAndLogBalance(chest, row.totalValue(), row.owner(), row.world(), row.x(), row.y(), row.z());
+
+        return chest;
     }
 
     @Override
-    public boolean deleteAccountChest(String world, int x, int y, int z) {
+    public void deleteAccountChest(String world, int x, int y, int z) {
         SqlUpdate deleteChest = db.sqlUpdate(
                 "delete from gringotts_accountchest where world = :world and x = :x and y = :y and z = :z"
         );
@@ -263,12 +448,15 @@ public class EBeanDAO implements DAO {
         deleteChest.setParameter("y", y);
         deleteChest.setParameter("z", z);
 
-        allChests.removeIf(chest -> {
+        Predicate<AccountChest> at = chest -> {
             Location loc = chest.sign.getLocation();
             return loc.getWorld().getName().equals(world) && loc.getX() == x && loc.getY() == y && loc.getZ() == z;
-        });
+        };
 
-        return deleteChest.execute() > 0;
+        untrack(chests.removeIf(at));
+        forgetBalances(at);
+
+        storage.write(deleteChest::execute);
     }
 
     /**
@@ -277,11 +465,10 @@ public class EBeanDAO implements DAO {
      * @param type    the type
      * @param holder  the holder
      * @param newName the new name
-     * @return the boolean
      */
     @Override
-    public boolean renameAccount(String type, AccountHolder holder, String newName) {
-        return renameAccount(type, holder.getId(), newName);
+    public void renameAccount(String type, AccountHolder holder, String newName) {
+        renameAccount(type, holder.getId(), newName);
     }
 
     /**
@@ -290,10 +477,9 @@ public class EBeanDAO implements DAO {
      * @param type    the type
      * @param oldName the old name
      * @param newName the new name
-     * @return the boolean
      */
     @Override
-    public boolean renameAccount(String type, String oldName, String newName) {
+    public synchronized void renameAccount(String type, String oldName, String newName) {
         SqlUpdate renameAccount = db.sqlUpdate(
                 "UPDATE gringotts_account SET owner = :newName WHERE owner = :oldName and type = :type"
         );
@@ -302,52 +488,34 @@ public class EBeanDAO implements DAO {
         renameAccount.setParameter("oldName", oldName);
         renameAccount.setParameter("newName", newName);
 
-        return renameAccount.execute() > 0;
+        String         oldKey  = centsKey(type, oldName);
+        String         newKey  = centsKey(type, newName);
+        PendingAccount removed = new PendingAccount(false);
+        PendingAccount added   = new PendingAccount(true);
+
+        // the cents move along with the account
+        markAccount(newKey, added, retrieveCents(type, oldName));
+        markAccount(oldKey, removed, 0L);
+
+        storage.write(() -> {
+            try {
+                renameAccount.execute();
+                centsWritten.incrementAndGet();
+            } finally {
+                pendingAccounts.remove(oldKey, removed);
+                pendingAccounts.remove(newKey, added);
+                evictCents(oldKey);
+            }
+        });
     }
 
+    /**
+     * Registered chests of an account. While the registry is still loading, chests in chunks that have not arrived
+     * yet are missing, they are not loaded synchronously to look them up.
+     */
     @Override
-    public synchronized List<AccountChest> retrieveChests(GringottsAccount account) {
-        if (!allChests.isEmpty()) {
-            return allChests.stream().filter(ac -> ac.account.owner.getId().equals(account.owner.getId())).collect(Collectors.toList());
-        }
-        SqlQuery getChests = db.sqlQuery("SELECT ac.world, ac.x, ac.y, ac.z, ac.total_value " +
-                "FROM gringotts_accountchest ac JOIN gringotts_account a ON ac.account = a.id " +
-                "WHERE a.owner = :owner and a.type = :type");
-
-        getChests.setParameter("owner", account.owner.getId());
-        getChests.setParameter("type", account.owner.getType());
-
-        List<AccountChest> chests = new LinkedList<>();
-        for (SqlRow result : getChests.findList()) {
-            String worldName = result.getString("world");
-            int x = result.getInteger("x");
-            int y = result.getInteger("y");
-            int z = result.getInteger("z");
-
-            World world = Bukkit.getWorld(worldName);
-
-            if (world == null) {
-                continue; // skip chest if it is in non-existent world
-            }
-
-            Optional<Sign> optionalSign = Util.getBlockStateAs(
-                    world.getBlockAt(x, y, z),
-                    Sign.class
-            );
-
-            if (optionalSign.isPresent()) {
-                long theoreticalBalance = result.getLong("total_value");
-                AccountChest chest = new AccountChest(optionalSign.get(), account, theoreticalBalance);
-                chests.add(chest);
-
-                checkAndLogBalance(chest, theoreticalBalance, account.owner.getId(), worldName, x, y, z);
-            } else {
-                // remove accountchest from storage if it is not a valid chest
-                deleteAccountChest(worldName, x, y, z);
-            }
-        }
-
-        return chests;
+    public List<AccountChest> retrieveChests(GringottsAccount account) {
+        return chests.of(account);
     }
 
     /**
@@ -357,18 +525,9 @@ public class EBeanDAO implements DAO {
      */
     @Override
     public List<String> getAccounts() {
-        SqlQuery getAccounts = db.sqlQuery("SELECT type, owner FROM gringotts_account");
-
-        List<String> returned = new LinkedList<>();
+        List<String> returned = new ArrayList<>();
 
-        for (SqlRow result : getAccounts.findList()) {
-            String type = result.getString("type");
-            String owner = result.getString("owner");
-
-            if (type != null && owner != null) {
-                returned.add(type + ":" + owner);
-            }
-        }
+        forEachAccount((type, owner) -> returned.add(type + ":" + owner));
 
         return returned;
     }
@@ -381,53 +540,220 @@ public class EBeanDAO implements DAO {
      */
     @Override
     public List<String> getAccounts(String type) {
+        List<String> returned = new ArrayList<>();
+
+        forEachAccount(type, owner -> returned.add(type + ":" + owner));
+
+        return returned;
+    }
+
+    @Override
+    public void forEachAccount(BiConsumer<String, String> consumer) {
+        db.sqlQuery("SELECT type, owner FROM gringotts_account").findEach(result -> {
+            String type = result.getString("type");
+            String owner = result.getString("owner");
+
+            if (type != null && owner != null) {
+                consumer.accept(type, owner);
+            }
+        });
+    }
+
+    @Override
+    public void forEachAccount(String type, Consumer<String> consumer) {
         SqlQuery getAccounts = db.sqlQuery("SELECT owner FROM gringotts_account WHERE type = :type");
 
         getAccounts.setParameter("type", type);
 
-        List<String> returned = new LinkedList<>();
-
-        for (SqlRow result : getAccounts.findList()) {
+        getAccounts.findEach(result -> {
             String owner = result.getString("owner");
 
             if (owner != null) {
-                returned.add(type + ":" + owner);
+                consumer.accept(owner);
             }
-        }
+        });
+    }
 
-        return returned;
+    // cents writes are ordered by the storage writer and reads see queued writes, so these statements do not take
+    // the lock shared by all accounts
+    @Override
+    public void storeCents(GringottsAccount account, long amount) {
+        String       key     = centsKey(account);
+        PendingCents pending = new PendingCents();
+
+        // both are updated under the account's entry, so the latest queued write carries the latest cents
+        cents.compute(key, (k, previous) -> {
+            pendingCents.put(k, pending);
+
+            return amount;
+        });
+
+        trimCents();
+
+        storage.write(() -> {
+            // a later write of the same account is queued, which stores newer cents
+            if (pendingCents.get(key) != pending) {
+                return;
+            }
+
+            SqlUpdate up = db.sqlUpdate("UPDATE gringotts_account SET cents = :cents " +
+                    "WHERE owner = :owner and type = :type");
+
+            up.setParameter("cents", amount);
+            up.setParameter("owner", account.owner.getId());
+            up.setParameter("type", account.owner.getType());
+
+            up.execute();
+            centsWritten.incrementAndGet();
+
+            // only cleared once written, the cached cents must not be evicted before
+            pendingCents.remove(key, pending);
+        });
     }
 
     @Override
-    public synchronized boolean storeCents(GringottsAccount account, long amount) {
-        SqlUpdate up = db.sqlUpdate("UPDATE gringotts_account SET cents = :cents " +
-                "WHERE owner = :owner and type = :type");
+    public long retrieveCents(GringottsAccount account) {
+        return retrieveCents(account.owner.getType(), account.owner.getId());
+    }
+
+    private long retrieveCents(String type, String owner) {
+        String key = centsKey(type, owner);
+
+        while (true) {
+            Long cached = cents.get(key);
+
+            if (cached != null) {
+                return cached;
+            }
+
+            long written = centsWritten.get();
+            long stored  = db.find(EBeanAccount.class)
+                .where()
+                .ieq("type", type)
+                .ieq("owner", owner)
+                .findOneOrEmpty()
+                .map(eBeanAccount -> eBeanAccount.cents)
+                .orElse(0L);
+
+            // a change made while reading wins
+            Long changed = cents.putIfAbsent(key, stored);
+
+            if (changed != null) {
+                return changed;
+            }
+
+            // a write that finished while reading may have been evicted already, so the read may be outdated
+            if (centsWritten.get() == written) {
+                trimCents();
 
-        up.setParameter("cents", amount);
-        up.setParameter("owner", account.owner.getId());
-        up.setParameter("type", account.owner.getType());
+                return stored;
+            }
 
-        return up.execute() == 1;
+            // dropped again unless a change replaced it meanwhile
+            cents.computeIfPresent(key, (k, cached) -> cached == stored
+                    && !pendingCents.containsKey(k) && !pendingAccounts.containsKey(k) ? null : cached);
+        }
     }
 
     @Override
-    public synchronized long retrieveCents(GringottsAccount account) {
-        Optional<EBeanAccount> result = db.find(EBeanAccount.class)
-            .where()
-            .ieq("type", account.owner.getType())
-            .ieq("owner", account.owner.getId())
-            .findOneOrEmpty();
+    public long retrieveStoredBalance(GringottsAccount account) {
+        SqlQuery getBalance = db.sqlQuery("SELECT a.cents, COALESCE(SUM(ac.total_value), 0) AS vaults " +
+                "FROM gringotts_account a LEFT JOIN gringotts_accountchest ac ON ac.account = a.id " +
+                "WHERE a.owner = :owner and a.type = :type GROUP BY a.id");
+
+        getBalance.setParameter("owner", account.owner.getId());
+        getBalance.setParameter("type", account.owner.getType());
 
-        return result.map(eBeanAccount -> eBeanAccount.cents).orElse(0L);
+        Long cached = cents.get(centsKey(account));
+
+        return getBalance.findOneOrEmpty()
+                .map(row -> (cached != null ? cached : row.getLong("cents")) + row.getLong("vaults"))
+                .orElse(0L);
+    }
+
+    private static String centsKey(GringottsAccount account) {
+        return centsKey(account.owner.getType(), account.owner.getId());
+    }
+
+    private static String centsKey(String type, String owner) {
+        return type + ":" + owner;
+    }
+
+    private static Object[] locks(int count) {
+        Object[] locks = new Object[count];
+
+        Arrays.setAll(locks, i -> new Object());
+
+        return locks;
+    }
+
+    /**
+     * Queue a creation or deletion of an account. Until it is written, lookups of the account answer whether it
+     * exists from memory, and its cents are read from memory. A deleted account's cents are evicted once written.
+     */
+    private void queueAccountChange(String key, boolean exists, long centsAfter, Runnable write) {
+        PendingAccount pending = new PendingAccount(exists);
+
+        markAccount(key, pending, centsAfter);
+
+        storage.write(() -> {
+            try {
+                write.run();
+                centsWritten.incrementAndGet();
+            } finally {
+                pendingAccounts.remove(key, pending);
+
+                if (!exists) {
+                    evictCents(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark an account as changed and set its cents, together under the account's cache entry, so that the entry is
+     * never evicted while the change is queued.
+     */
+    private void markAccount(String key, PendingAccount pending, long centsAfter) {
+        cents.compute(key, (k, previous) -> {
+            pendingAccounts.put(k, pending);
+
+            return centsAfter;
+        });
+    }
+
+    /**
+     * Drop cached cents of an account, unless a change of it is still queued.
+     */
+    private void evictCents(String key) {
+        cents.computeIfPresent(key, (k, cached) ->
+                pendingCents.containsKey(k) || pendingAccounts.containsKey(k) ? cached : null);
+    }
+
+    /**
+     * Evict cached cents without queued changes once the cache holds too many accounts.
+     */
+    private void trimCents() {
+        if (cents.size() <= MAX_CACHED_CENTS) {
+            return;
+        }
+
+        for (String key : cents.keySet()) {
+            if (cents.size() <= MAX_CACHED_CENTS * 3 / 4) {
+                break;
+            }
+
+            evictCents(key);
+        }
     }
 
     @Override
-    public synchronized boolean deleteAccount(GringottsAccount acc) {
-        return deleteAccount(acc.owner.getType(), acc.owner.getId());
+    public void deleteAccount(GringottsAccount acc) {
+        deleteAccount(acc.owner.getType(), acc.owner.getId());
     }
 
     @Override
-    public synchronized boolean deleteAccount(String type, String account) {
+    public synchronized void deleteAccount(String type, String account) {
         SqlUpdate renameAccount = db.sqlUpdate(
                 "DELETE FROM gringotts_account WHERE owner = :account and type = :type"
         );
@@ -435,33 +761,141 @@ public class EBeanDAO implements DAO {
         renameAccount.setParameter("type", type);
         renameAccount.setParameter("account", account);
 
-        return renameAccount.execute() > 0;
+        String key = centsKey(type, account);
+
+        // queued cents of the deleted account are written before it is deleted, but must not be read any more
+        queueAccountChange(key, false, 0L, renameAccount::execute);
     }
 
     @Override
-    public synchronized boolean deleteAccountChests(GringottsAccount acc) {
-        return deleteAccountChests(acc.owner.getId());
+    public void deleteAccountChests(GringottsAccount acc) {
+        deleteAccountChests(acc.owner.getId());
     }
 
     @Override
-    public synchronized boolean deleteAccountChests(String account) {
-        allChests.removeIf(chest -> chest.account.owner.getId().equals(account));
+    public void deleteAccountChests(String account) {
+        Predicate<AccountChest> owned = chest -> chest.account.owner.getId().equals(account);
+
+        untrack(chests.removeIf(owned));
+        forgetBalances(owned);
         SqlUpdate renameAccount = db.sqlUpdate(
                 "DELETE FROM gringotts_accountchest WHERE account = :account"
         );
 
         renameAccount.setParameter("account", account);
 
-        return renameAccount.execute() > 0;
+        storage.write(renameAccount::execute);
+    }
+
+    @Override
+    public synchronized List<EBeanBankMember> retrieveBankMembers() {
+        return db.find(EBeanBankMember.class).findList();
+    }
+
+    @Override
+    public void forEachBankMember(Consumer<EBeanBankMember> consumer) {
+        db.find(EBeanBankMember.class).findEach(consumer);
+    }
+
+    @Override
+    public void storeBankMember(String bank, String member, boolean owner) {
+        SqlUpdate deleteMember = db.sqlUpdate(
+                "DELETE FROM gringotts_bank_member WHERE bank = :bank and member = :member"
+        );
+
+        deleteMember.setParameter("bank", bank);
+        deleteMember.setParameter("member", member);
+
+        EBeanBankMember membership = new EBeanBankMember();
+
+        membership.setBank(bank);
+        membership.setMember(member);
+        membership.setOwner(owner);
+
+        storage.write(() -> {
+            deleteMember.execute();
+            db.save(membership);
+        });
+    }
+
+    @Override
+    public void deleteBankMembers(String bank) {
+        SqlUpdate deleteMembers = db.sqlUpdate(
+                "DELETE FROM gringotts_bank_member WHERE bank = :bank"
+        );
+
+        deleteMembers.setParameter("bank", bank);
+
+        storage.write(deleteMembers::execute);
+    }
+
+    /**
+     * Remove chests from their accounts' vault totals once they were removed from the registered chests.
+     */
+    private void untrack(List<AccountChest> removed) {
+        VaultTotals totals = Gringotts.instance.getVaultTotals();
+
+        for (AccountChest chest : removed) {
+            totals.untrack(chest);
+        }
+    }
+
+    /**
+     * Delete chests found invalid while iterating over query results, once the iteration is done.
+     */
+    private void deleteAccountChests(List<ChestLocation> locations) {
+        for (ChestLocation location : locations) {
+            deleteAccountChest(location.world(), location.x(), location.y(), location.z());
+        }
     }
 
     @Override
     public synchronized void shutdown() {
-        // probably handled by Bukkit?
+        flushChestBalances();
     }
 
     @Override
-    public boolean updateChestBalance(AccountChest chest, long balance) {
+    public void updateChestBalance(AccountChest chest, long balance) {
+        boolean schedule;
+
+        synchronized (dirtyBalances) {
+            schedule = dirtyBalances.isEmpty();
+
+            dirtyBalances.put(chest, balance);
+        }
+
+        if (schedule && Gringotts.instance.isEnabled()) {
+            Bukkit.getScheduler().runTask(Gringotts.instance, this::flushChestBalances);
+        }
+    }
+
+    /**
+     * Write all chest balances changed since the last flush.
+     */
+    private void flushChestBalances() {
+        List<Map.Entry<AccountChest, Long>> balances;
+
+        synchronized (dirtyBalances) {
+            balances = new ArrayList<>(dirtyBalances.entrySet());
+
+            dirtyBalances.clear();
+        }
+
+        for (Map.Entry<AccountChest, Long> balance : balances) {
+            writeChestBalance(balance.getKey(), balance.getValue());
+        }
+    }
+
+    /**
+     * Drop unwritten balances of deleted chests, so they can't end up on a chest created at the same place later.
+     */
+    private void forgetBalances(Predicate<AccountChest> deleted) {
+        synchronized (dirtyBalances) {
+            dirtyBalances.keySet().removeIf(deleted);
+        }
+    }
+
+    private void writeChestBalance(AccountChest chest, long balance) {
         SqlUpdate updateChest = db.sqlUpdate(
             "UPDATE gringotts_accountchest SET total_value = :total_value "
             + "WHERE world = :world and x = :x and y = :y and z = :z"
@@ -472,6 +906,33 @@ public class EBeanDAO implements DAO {
         updateChest.setParameter("y", chest.sign.getY());
         updateChest.setParameter("z", chest.sign.getZ());
         updateChest.setParameter("total_value", balance);
-        return updateChest.execute() > 0;
+
+        storage.write(updateChest::execute);
+    }
+
+    /**
+     * Marker of a queued cents write. Compared by identity, so that a write can tell whether it was overtaken.
+     */
+    private static final class PendingCents {
+    }
+
+    /**
+     * Queued change of an account. Compared by identity, so that a finished write only clears its own entry.
+     */
+    private static final class PendingAccount {
+        final boolean exists;
+
+        PendingAccount(boolean exists) {
+            this.exists = exists;
+        }
+    }
+
+    private record ChestLocation(String world, int x, int y, int z) {
+    }
+
+    private record ChunkLocation(String world, int x, int z) {
+    }
+
+    private record ChestRow(String world, int x, int y, int z, String type, String owner, long totalValue) {
     }
 }
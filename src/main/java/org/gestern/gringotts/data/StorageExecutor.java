@@ -0,0 +1,155 @@
+package org.gestern.gringotts.data;
+
+import org.bukkit.Bukkit;
+import org.gestern.gringotts.Gringotts;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Threads for database access, so that the main thread only hands work over instead of waiting for the database.
+ * <p>
+ * Writes run on a single thread, strictly in the order they were submitted. Its queue is bounded for most threads:
+ * when it is full, they wait until there is room again. The main thread and the writer itself never wait, their
+ * writes are queued beyond the bound instead, so a slow database can never stall the server. Reads run on a separate
+ * pool, using virtual threads when the server runs on Java 21 or later.
+ */
+public class StorageExecutor {
+    private static final int QUEUE_SIZE = 4096;
+    private static final int READERS    = 2;
+
+    private final ThreadPoolExecutor writer;
+    private final ExecutorService    readers;
+    /**
+     * Room left in the write queue for threads that wait for it.
+     */
+    private final Semaphore          room = new Semaphore(QUEUE_SIZE);
+    private volatile Thread          writerThread;
+
+    public StorageExecutor() {
+        ThreadFactory writerThreads = daemonThreads("Gringotts storage writer");
+
+        this.writer = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> writerThread = writerThreads.newThread(r)
+        );
+        this.readers = readerPool();
+    }
+
+    /**
+     * Queue a write. Writes are applied one at a time in submission order. If the queue is full, threads other than
+     * the main thread and the writer wait for room. Once the executor is shut down, writes run on the calling thread.
+     *
+     * @param task the write
+     */
+    public void write(Runnable task) {
+        boolean reserved = reserveRoom();
+        Runnable logged = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Gringotts.instance.getLogger().log(Level.SEVERE, "Could not write to the database.", e);
+            } finally {
+                if (reserved) {
+                    room.release();
+                }
+            }
+        };
+
+        try {
+            writer.execute(logged);
+        } catch (RejectedExecutionException e) {
+            logged.run();
+        }
+    }
+
+    /**
+     * Take room in the write queue, waiting for it unless the caller must not wait.
+     *
+     * @return whether room was taken, which is given back once the write ran
+     */
+    private boolean reserveRoom() {
+        if (Bukkit.isPrimaryThread() || Thread.currentThread() == writerThread) {
+            return room.tryAcquire();
+        }
+
+        try {
+            room.acquire();
+
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /**
+     * Run a read on the reader pool.
+     *
+     * @param task the read
+     * @param <V>  result type of the read
+     * @return completed with the result of the read
+     */
+    public <V> CompletableFuture<V> read(Callable<V> task) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+
+        readers.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Apply all queued writes and stop the threads.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        readers.shutdown();
+
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                Gringotts.instance.getLogger().warning("Timed out writing to the database, "
+                        + writer.getQueue().size() + " writes were lost.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService readerPool() {
+        try {
+            // available from Java 21
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(READERS, daemonThreads("Gringotts storage reader"));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+
+        return r -> {
+            Thread thread = new Thread(r, name + " #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+}
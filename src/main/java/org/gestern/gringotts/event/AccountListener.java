@@ -1,27 +1,49 @@
 package org.gestern.gringotts.event;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
 import org.bukkit.event.block.BlockDispenseEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.SignChangeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.inventory.ItemStack;
 import org.gestern.gringotts.AccountChest;
 import org.gestern.gringotts.Configuration;
 import org.gestern.gringotts.Gringotts;
 import org.gestern.gringotts.Util;
+import org.gestern.gringotts.currency.GringottsCurrency;
 
 import com.destroystokyo.paper.event.block.BlockDestroyEvent;
 
@@ -36,6 +58,9 @@ public class AccountListener implements Listener {
 
     private final Pattern VAULT_PATTERN = Pattern.compile(Configuration.CONF.vaultPattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
 
+    private final Map<WatchedSlot, SlotChange> watchedSlots = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
     /**
      * Create an account chest by adding a sign marker over it.
      *
@@ -43,6 +68,8 @@ public class AccountListener implements Listener {
      */
     @EventHandler
     public void onSignChange(SignChangeEvent event) {
+        invalidateVaultsNear(event.getBlock());
+
         String line0String = ChatColor.stripColor(event.getLine(0)).trim();
 
         if (line0String == null) {
@@ -80,8 +107,55 @@ public class AccountListener implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        invalidateVaultsNear(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        invalidateVaultsNear(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        invalidateVaultsNear(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        invalidateVaultsNear(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        List<Block> blocks = new ArrayList<>(event.getBlocks());
+        blocks.add(event.getBlock().getRelative(event.getDirection()));
+
+        invalidateVaultsNear(blocks);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        List<Block> blocks = new ArrayList<>(event.getBlocks());
+        blocks.add(event.getBlock().getRelative(event.getDirection()));
+
+        invalidateVaultsNear(blocks);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+
+        for (AccountChest chest : Gringotts.instance.getDao().retrieveChests(chunk.getWorld(), chunk.getX(), chunk.getZ())) {
+            chest.invalidateValidity();
+        }
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onSignBreak(BlockDestroyEvent event) {
+        invalidateVaultsNear(event.getBlock());
+
         if (Tag.SIGNS.isTagged(event.getBlock().getType())) {
             Gringotts.instance.getDao().deleteAccountChest(
                 event.getBlock().getWorld().getName(),
@@ -99,57 +173,100 @@ public class AccountListener implements Listener {
         AccountChest chest = getAccountChestFromHolder(event.getInventory());
         if (chest == null) return;
 
-        chest.setCachedBalance(chest.balance(true));
-        Gringotts.instance.getDao().updateChestBalance(chest, chest.getCachedBalance());
+        if (!watchedSlots.isEmpty()) flushWatchedSlots();
+
+        if (chest.isDirty()) chest.verifyBalance();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        Inventory top     = event.getView().getTopInventory();
+        Inventory clicked = event.getClickedInventory();
+
+        if (clicked == null || top.getLocation() == null || !Util.isValidInventory(top.getType())) return;
+
+        switch (event.getAction()) {
+            case NOTHING:
+                return;
+            case MOVE_TO_OTHER_INVENTORY:
+                // whatever leaves the clicked player slot ends up in the vault
+                if (clicked != top) {
+                    AccountChest chest = getAccountChestFromHolder(top);
+                    if (chest != null) watchSlot(chest, clicked, event.getSlot(), true, event.getCurrentItem());
+                    return;
+                }
+                break;
+            case COLLECT_TO_CURSOR:
+            case UNKNOWN: {
+                // may take from any slot of the vault
+                AccountChest chest = getAccountChestFromHolder(top);
+                if (chest != null) chest.markDirty();
+                return;
+            }
+            default:
+                if (clicked != top) return;
+        }
+
+        AccountChest chest = getAccountChestFromHolder(top);
+        if (chest != null) watchSlot(chest, top, event.getSlot(), false, event.getCurrentItem());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        Inventory top = event.getView().getTopInventory();
+
+        if (top.getLocation() == null || !Util.isValidInventory(top.getType())) return;
+
+        GringottsCurrency cur   = Configuration.CONF.getCurrency();
+        long              delta = 0;
+
+        for (Map.Entry<Integer, ItemStack> entry : event.getNewItems().entrySet()) {
+            int rawSlot = entry.getKey();
+
+            if (rawSlot < top.getSize()) {
+                delta += cur.getValue(entry.getValue()) - cur.getValue(event.getView().getItem(rawSlot));
+            }
+        }
+
+        if (delta == 0) return;
+
+        AccountChest chest = getAccountChestFromHolder(top);
+        if (chest != null) chest.adjustCachedBalance(delta);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        long value = Configuration.CONF.getCurrency().getValue(event.getItem());
+
+        if (value == 0) return;
+
         if (Util.isValidInventory(event.getSource().getType())) {
             AccountChest chest = getAccountChestFromHolder(event.getSource());
-            if (chest != null) {
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        chest.setCachedBalance(chest.balance(true));
-                        Gringotts.instance.getDao().updateChestBalance(chest, chest.getCachedBalance());
-                    }
-                }.runTask(Gringotts.instance);
-            }
+            if (chest != null) chest.adjustCachedBalance(-value);
         }
         if (event.getDestination() != null && Util.isValidInventory(event.getDestination().getType())) {
             AccountChest chest = getAccountChestFromHolder(event.getDestination());
-            if (chest != null) {
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        chest.setCachedBalance(chest.balance(true));
-                        Gringotts.instance.getDao().updateChestBalance(chest, chest.getCachedBalance());
-                    }
-                }.runTask(Gringotts.instance);
-            }
+            if (chest != null) chest.adjustCachedBalance(value);
         }
     }
 
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onDispenseEvent(BlockDispenseEvent event) {
+        long value = Configuration.CONF.getCurrency().getValue(event.getItem());
+
+        if (value == 0) return;
+
         if (event.getBlock().getState() instanceof InventoryHolder) {
             AccountChest chest = getAccountChestFromHolder(((InventoryHolder) event.getBlock().getState()).getInventory());
-            if (chest != null) {
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        chest.setCachedBalance(chest.balance(true));
-                        Gringotts.instance.getDao().updateChestBalance(chest, chest.getCachedBalance());
-                    }
-                }.runTask(Gringotts.instance);
-            }
+            if (chest != null) chest.adjustCachedBalance(-value);
         }
     }
 
     @EventHandler
     public void onSignEdit(PlayerOpenSignEvent event) {
-        for (AccountChest chest : Gringotts.instance.getDao().retrieveChests()) {
+        Block block = event.getSign().getBlock();
+
+        for (AccountChest chest : Gringotts.instance.getDao().retrieveChests(block.getWorld(), block.getX() >> 4, block.getZ() >> 4)) {
             if (!chest.isChestLoaded()) continue; // For a sign to be changed, it needs to be loaded
             if (event.getSign().getLocation().equals(chest.sign.getLocation())) {
                 event.setCancelled(true);
@@ -158,13 +275,166 @@ public class AccountListener implements Listener {
         }
     }
 
+    /**
+     * Forget the cached validity of all vaults that a change to the given block may affect.
+     *
+     * @param block the changed block
+     */
+    private void invalidateVaultsNear(Block block) {
+        for (AccountChest chest : vaultsAround(block.getWorld(), block.getX(), block.getZ())) {
+            if (chest.isNear(block.getWorld(), block.getX(), block.getY(), block.getZ())) {
+                chest.invalidateValidity();
+            }
+        }
+    }
+
+    /**
+     * Forget the cached validity of all vaults that a change to any of the given blocks may affect.
+     *
+     * @param blocks the changed blocks, all in the same world
+     */
+    private void invalidateVaultsNear(List<Block> blocks) {
+        if (blocks.isEmpty()) return;
+
+        World     world  = blocks.get(0).getWorld();
+        Set<Long> chunks = new HashSet<>();
+
+        for (Block block : blocks) {
+            addChunksAround(chunks, block.getX(), block.getZ());
+        }
+
+        for (AccountChest chest : vaultsIn(world, chunks)) {
+            for (Block block : blocks) {
+                if (chest.isNear(world, block.getX(), block.getY(), block.getZ())) {
+                    chest.invalidateValidity();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Registered vaults that may include a block in the given column, looked up in the chunks within
+     * {@link AccountChest#REACH} of it.
+     *
+     * @param world world of the block
+     * @param x     x coordinate of the block
+     * @param z     z coordinate of the block
+     * @return vaults whose sign is close enough to the column
+     */
+    private static Collection<AccountChest> vaultsAround(World world, int x, int z) {
+        int minX = (x - AccountChest.REACH) >> 4;
+        int maxX = (x + AccountChest.REACH) >> 4;
+        int minZ = (z - AccountChest.REACH) >> 4;
+        int maxZ = (z + AccountChest.REACH) >> 4;
+
+        // the common case, well inside a chunk
+        if (minX == maxX && minZ == maxZ) {
+            return Gringotts.instance.getDao().retrieveChests(world, minX, minZ);
+        }
+
+        Set<Long> chunks = new HashSet<>();
+
+        addChunksAround(chunks, x, z);
+
+        return vaultsIn(world, chunks);
+    }
+
+    /**
+     * Add the chunks within {@link AccountChest#REACH} of a block column to a set of packed chunk coordinates.
+     */
+    private static void addChunksAround(Set<Long> chunks, int x, int z) {
+        for (int cx = (x - AccountChest.REACH) >> 4; cx <= (x + AccountChest.REACH) >> 4; cx++) {
+            for (int cz = (z - AccountChest.REACH) >> 4; cz <= (z + AccountChest.REACH) >> 4; cz++) {
+                chunks.add(((long) cx << 32) | (cz & 0xFFFFFFFFL));
+            }
+        }
+    }
+
+    /**
+     * Registered vaults whose sign is in any of the given chunks.
+     *
+     * @param world  world of the chunks
+     * @param chunks packed chunk coordinates
+     * @return the vaults in the chunks
+     */
+    private static List<AccountChest> vaultsIn(World world, Set<Long> chunks) {
+        List<AccountChest> vaults = new ArrayList<>();
+
+        for (long chunk : chunks) {
+            vaults.addAll(Gringotts.instance.getDao().retrieveChests(world, (int) (chunk >> 32), (int) chunk));
+        }
+
+        return vaults;
+    }
+
+    /**
+     * Remember the value of a slot before a click, so that the vault balance can be adjusted by the difference once
+     * the click was applied. Slots are compared at the end of the tick, against the first value seen in that tick.
+     *
+     * @param chest     vault affected by the slot change
+     * @param inventory inventory containing the slot
+     * @param slot      slot index in the inventory
+     * @param inverted  true if the slot is outside the vault, so that whatever leaves it goes into the vault
+     * @param before    item in the slot before the click
+     */
+    private void watchSlot(AccountChest chest, Inventory inventory, int slot, boolean inverted, ItemStack before) {
+        watchedSlots.computeIfAbsent(
+                new WatchedSlot(inventory, slot),
+                key -> new SlotChange(
+                        chest,
+                        chest.getVerifications(),
+                        inverted,
+                        Configuration.CONF.getCurrency().getValue(before)
+                )
+        );
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            Bukkit.getScheduler().runTask(Gringotts.instance, this::flushWatchedSlots);
+        }
+    }
+
+    /**
+     * Apply the value changes of all slots clicked during the last tick, once per vault.
+     */
+    private void flushWatchedSlots() {
+        flushScheduled = false;
+
+        GringottsCurrency       cur    = Configuration.CONF.getCurrency();
+        Map<AccountChest, Long> deltas = new HashMap<>();
+
+        for (Map.Entry<WatchedSlot, SlotChange> entry : watchedSlots.entrySet()) {
+            WatchedSlot slot   = entry.getKey();
+            SlotChange  change = entry.getValue();
+
+            // verified since the click, so the change is already accounted for
+            if (change.chest().getVerifications() != change.verifications()) {
+                continue;
+            }
+
+            long after = cur.getValue(slot.inventory().getItem(slot.slot()));
+            long delta = change.inverted() ? change.before() - after : after - change.before();
+
+            deltas.merge(change.chest(), delta, Long::sum);
+        }
+
+        watchedSlots.clear();
+
+        deltas.forEach(AccountChest::adjustCachedBalance);
+    }
+
     /**
      * Get the AccountChest associated with this {@link InventoryHolder}
      * @param holder
      * @return the {@link AccountChest} or null if none was found
      */
     private AccountChest getAccountChestFromHolder(Inventory holder) {
-        for (AccountChest chest : Gringotts.instance.getDao().retrieveChests()) {
+        Location location = holder.getLocation();
+
+        if (location == null) return null;
+
+        for (AccountChest chest : vaultsAround(location.getWorld(), location.getBlockX(), location.getBlockZ())) {
             if (!chest.isChestLoaded()) continue; // For a chest to be open or interacted with, it needs to be loaded
 
             if (chest.matchesLocation(holder.getLocation())) {
@@ -173,4 +443,8 @@ public class AccountListener implements Listener {
         }
         return null;
     }
+
+    private record WatchedSlot(Inventory inventory, int slot) {}
+
+    private record SlotChange(AccountChest chest, int verifications, boolean inverted, long before) {}
 }
@@ -0,0 +1,13 @@
+package org.gestern.gringotts.journal;
+
+/**
+ * A transaction read back from the journal.
+ *
+ * @param timestamp time of the transaction, in milliseconds since the epoch
+ * @param from      account the money was sent from, as type:id
+ * @param to        account the money was sent to, as type:id
+ * @param amount    amount received by the recipient, in cents
+ * @param tax       tax paid by the sender on top of the amount, in cents
+ */
+public record JournalEntry(long timestamp, String from, String to, long amount, long tax) {
+}
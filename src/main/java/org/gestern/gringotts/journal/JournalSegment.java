@@ -0,0 +1,248 @@
+package org.gestern.gringotts.journal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * One memory-mapped file of the journal, holding a fixed number of fixed-width records.
+ * <p>
+ * Layout: a 16 byte header (magic, version, record count, record capacity), followed by 32 byte records of
+ * timestamp (long), sender (int), recipient (int), amount (long) and tax (long). Accounts are stored as ids of the
+ * journal's account dictionary.
+ * <p>
+ * Each segment has a sparse index of the accounts it mentions, so that lookups can skip whole segments. It is kept
+ * in memory while the segment is written, and stored next to the segment once it is sealed.
+ * <p>
+ * Only the journal's writer thread appends; any thread may read.
+ */
+final class JournalSegment {
+    static final int MAGIC       = 0x47524A4C; // "GRJL"
+    static final int VERSION     = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+
+    final int number;
+
+    private final Path             file;
+    private final Path             indexFile;
+    private final ByteBuffer       buffer;
+    private final int              capacity;
+    private final Set<Integer>     activeIndex;
+    private volatile int           count;
+    private volatile int[]         sealedIndex;
+
+    private JournalSegment(int number, Path file, ByteBuffer buffer, int capacity, int count) {
+        this.number = number;
+        this.file = file;
+        this.indexFile = file.resolveSibling(file.getFileName() + ".idx");
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = count;
+        this.activeIndex = ConcurrentHashMap.newKeySet();
+    }
+
+    static Path fileName(Path dir, int number) {
+        return dir.resolve(String.format("segment-%06d.dat", number));
+    }
+
+    /**
+     * Create and map a new, empty segment for writing.
+     */
+    static JournalSegment create(Path dir, int number, int capacity) throws IOException {
+        Path file = fileName(dir, number);
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, 0);
+            buffer.putInt(12, capacity);
+
+            return new JournalSegment(number, file, buffer, capacity, 0);
+        }
+    }
+
+    /**
+     * Map an existing segment for reading. Its index is loaded, or rebuilt if it was not written.
+     */
+    static JournalSegment open(Path dir, int number) throws IOException {
+        Path file = fileName(dir, number);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            JournalSegment segment = map(number, file, buffer);
+            segment.loadIndex();
+
+            return segment;
+        }
+    }
+
+    /**
+     * Map an existing segment for writing, so that records are appended after its last one. Its index is rebuilt
+     * from the records and kept in memory until the segment is sealed again.
+     */
+    static JournalSegment resume(Path dir, int number) throws IOException {
+        Path file = fileName(dir, number);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+
+            JournalSegment segment = map(number, file, buffer);
+
+            buffer.putInt(8, segment.count);
+            Files.deleteIfExists(segment.indexFile);
+            segment.indexRecords();
+
+            return segment;
+        }
+    }
+
+    /**
+     * Read the header of a mapped segment. Records written after the count in the header was last updated are
+     * recovered, as unused records are all zero.
+     */
+    private static JournalSegment map(int number, Path file, ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a journal segment: " + file);
+        }
+
+        int capacity = Math.min(buffer.getInt(12), (buffer.limit() - HEADER_SIZE) / RECORD_SIZE);
+        int count    = Math.max(Math.min(buffer.getInt(8), capacity), 0);
+
+        while (count < capacity && buffer.getLong(HEADER_SIZE + count * RECORD_SIZE) != 0) {
+            count++;
+        }
+
+        return new JournalSegment(number, file, buffer, capacity, count);
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    /**
+     * Append a record. Only called from the writer thread.
+     */
+    void append(long timestamp, int from, int to, long amount, long tax) {
+        int offset = HEADER_SIZE + count * RECORD_SIZE;
+
+        buffer.putLong(offset, timestamp);
+        buffer.putInt(offset + 8, from);
+        buffer.putInt(offset + 12, to);
+        buffer.putLong(offset + 16, amount);
+        buffer.putLong(offset + 24, tax);
+
+        activeIndex.add(from);
+        activeIndex.add(to);
+
+        buffer.putInt(8, count + 1);
+        // publishes the record to readers
+        count++;
+    }
+
+    /**
+     * Flush the segment to disk and store its index. No records are appended afterwards.
+     */
+    void seal() throws IOException {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+
+        int[] index = activeIndex.stream().mapToInt(Integer::intValue).sorted().toArray();
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(indexFile))) {
+            out.writeInt(index.length);
+            for (int account : index) {
+                out.writeInt(account);
+            }
+        }
+
+        sealedIndex = index;
+    }
+
+    /**
+     * Whether any record of this segment involves the account.
+     */
+    boolean mentions(int account) {
+        int[] index = sealedIndex;
+
+        return index != null ? Arrays.binarySearch(index, account) >= 0 : activeIndex.contains(account);
+    }
+
+    /**
+     * Collect records involving the account, newest first, until the list holds limit entries.
+     */
+    void readBackwards(int account, int limit, List<JournalEntry> out, IntFunction<String> names) {
+        if (!mentions(account)) {
+            return;
+        }
+
+        for (int i = count - 1; i >= 0 && out.size() < limit; i--) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            int from   = buffer.getInt(offset + 8);
+            int to     = buffer.getInt(offset + 12);
+
+            if (from == account || to == account) {
+                out.add(new JournalEntry(
+                        buffer.getLong(offset),
+                        names.apply(from),
+                        names.apply(to),
+                        buffer.getLong(offset + 16),
+                        buffer.getLong(offset + 24)
+                ));
+            }
+        }
+    }
+
+    /**
+     * Delete the segment and its index from disk.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(indexFile);
+        Files.deleteIfExists(file);
+    }
+
+    private void loadIndex() throws IOException {
+        if (Files.exists(indexFile)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(indexFile))) {
+                int[] index = new int[in.readInt()];
+
+                for (int i = 0; i < index.length; i++) {
+                    index[i] = in.readInt();
+                }
+
+                sealedIndex = index;
+                return;
+            }
+        }
+
+        // not sealed properly, rebuild from the records
+        indexRecords();
+        seal();
+    }
+
+    private void indexRecords() {
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+
+            activeIndex.add(buffer.getInt(offset + 8));
+            activeIndex.add(buffer.getInt(offset + 12));
+        }
+    }
+}
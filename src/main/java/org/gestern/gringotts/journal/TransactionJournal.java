@@ -0,0 +1,273 @@
+package org.gestern.gringotts.journal;
+
+import org.gestern.gringotts.Gringotts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only record of completed transactions.
+ * <p>
+ * Recording a transaction only puts it on a bounded queue. A background thread appends the queued transactions to
+ * memory-mapped segment files of fixed-width records, starting a new segment when the current one is full and
+ * deleting the oldest segments beyond the configured number. When the journal is opened again, it keeps appending to
+ * the last segment until that one is full. Account names are stored once in a dictionary file
+ * and referenced by number in the records.
+ * <p>
+ * If the queue is full, transactions are dropped from the journal rather than slowing down the caller.
+ */
+public class TransactionJournal {
+    private static final int     QUEUE_SIZE      = 8192;
+    private static final String  DICTIONARY      = "accounts.txt";
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("segment-(\\d+)\\.dat");
+
+    private final Path                          dir;
+    private final int                           segmentRecords;
+    private final int                           maxSegments;
+    private final BlockingQueue<Record>         queue    = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final List<JournalSegment>          segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer>          ids      = new ConcurrentHashMap<>();
+    private final List<String>                  names    = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong                    dropped  = new AtomicLong();
+    private final BufferedWriter                dictionary;
+    private final Thread                        writer;
+    private volatile boolean                    running  = true;
+
+    /**
+     * Open the journal in a directory, creating it if necessary, and start the background writer.
+     *
+     * @param dir            directory of the journal files
+     * @param segmentRecords number of records per segment file
+     * @param maxSegments    number of segment files to keep
+     * @throws IOException if the journal cannot be opened
+     */
+    public TransactionJournal(Path dir, int segmentRecords, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentRecords = Math.max(segmentRecords, 1);
+        this.maxSegments = Math.max(maxSegments, 1);
+
+        Files.createDirectories(dir);
+
+        Path dictionaryFile = dir.resolve(DICTIONARY);
+
+        if (Files.exists(dictionaryFile)) {
+            for (String name : Files.readAllLines(dictionaryFile, StandardCharsets.UTF_8)) {
+                ids.putIfAbsent(name, names.size());
+                names.add(name);
+            }
+        }
+
+        this.dictionary = Files.newBufferedWriter(dictionaryFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        List<Integer> numbers = segmentNumbers();
+        int           next    = 0;
+
+        for (int i = 0; i < numbers.size(); i++) {
+            int number = numbers.get(i);
+
+            try {
+                // the last segment is written on until it is full
+                segments.add(i == numbers.size() - 1
+                        ? JournalSegment.resume(dir, number)
+                        : JournalSegment.open(dir, number));
+            } catch (IOException e) {
+                Gringotts.instance.getLogger().log(Level.WARNING, "Skipping unreadable journal segment.", e);
+            }
+
+            next = number + 1;
+        }
+
+        if (!segments.isEmpty() && active().number == next - 1 && active().isFull()) {
+            active().seal();
+        }
+
+        if (segments.isEmpty() || active().number != next - 1 || active().isFull()) {
+            segments.add(JournalSegment.create(dir, next, this.segmentRecords));
+        }
+
+        deleteOldSegments();
+
+        this.writer = new Thread(this::write, "Gringotts journal writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Record a completed transaction. Returns immediately; the record is written in the background.
+     *
+     * @param from   sending account, as type:id
+     * @param to     receiving account, as type:id
+     * @param amount amount received, in cents
+     * @param tax    tax paid by the sender on top of the amount, in cents
+     */
+    public void record(String from, String to, long amount, long tax) {
+        if (!running) {
+            return;
+        }
+
+        if (!queue.offer(new Record(System.currentTimeMillis(), from, to, amount, tax))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Most recent transactions involving an account, newest first. Segments not mentioning the account are skipped
+     * by their index.
+     *
+     * @param account account as type:id
+     * @param limit   maximum number of entries
+     * @return the transactions, at most limit of them
+     */
+    public List<JournalEntry> history(String account, int limit) {
+        List<JournalEntry> entries = new ArrayList<>();
+        Integer            id      = ids.get(account);
+
+        if (id == null) {
+            return entries;
+        }
+
+        List<JournalSegment> current = new ArrayList<>(segments);
+
+        for (int i = current.size() - 1; i >= 0 && entries.size() < limit; i--) {
+            current.get(i).readBackwards(id, limit, entries, this::name);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Write all queued transactions, seal the current segment and stop the background writer.
+     */
+    public void close() {
+        running = false;
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            dictionary.close();
+        } catch (IOException e) {
+            Gringotts.instance.getLogger().log(Level.WARNING, "Could not close journal dictionary.", e);
+        }
+
+        long lost = dropped.get();
+
+        if (lost > 0) {
+            Gringotts.instance.getLogger().warning(lost + " transactions were not journaled because the queue was full.");
+        }
+    }
+
+    private void write() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Record record = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+
+                if (record != null) {
+                    append(record);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                Gringotts.instance.getLogger().log(Level.SEVERE, "Could not write to the transaction journal.", e);
+            }
+        }
+
+        try {
+            active().seal();
+        } catch (IOException e) {
+            Gringotts.instance.getLogger().log(Level.WARNING, "Could not seal journal segment.", e);
+        }
+    }
+
+    private void append(Record record) throws IOException {
+        JournalSegment segment = active();
+
+        if (segment.isFull()) {
+            segment.seal();
+            segment = JournalSegment.create(dir, segment.number + 1, segmentRecords);
+            segments.add(segment);
+            deleteOldSegments();
+        }
+
+        segment.append(record.timestamp, id(record.from), id(record.to), record.amount, record.tax);
+    }
+
+    private JournalSegment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    /**
+     * Id of an account in the dictionary, adding it if it is new. Only called from the writer thread.
+     */
+    private int id(String account) throws IOException {
+        Integer id = ids.get(account);
+
+        if (id != null) {
+            return id;
+        }
+
+        dictionary.write(account);
+        dictionary.newLine();
+        dictionary.flush();
+
+        int newId = names.size();
+
+        names.add(account);
+        ids.put(account, newId);
+
+        return newId;
+    }
+
+    private String name(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : "?";
+    }
+
+    private void deleteOldSegments() {
+        while (segments.size() > maxSegments) {
+            JournalSegment oldest = segments.remove(0);
+
+            try {
+                oldest.delete();
+            } catch (IOException e) {
+                Gringotts.instance.getLogger().log(Level.WARNING, "Could not delete old journal segment.", e);
+            }
+        }
+    }
+
+    private List<Integer> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .map(file -> SEGMENT_PATTERN.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Integer.parseInt(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private record Record(long timestamp, String from, String to, long amount, long tax) {
+    }
+}
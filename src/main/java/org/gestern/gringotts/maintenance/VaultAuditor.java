@@ -0,0 +1,192 @@
+package org.gestern.gringotts.maintenance;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.gestern.gringotts.AccountChest;
+import org.gestern.gringotts.Configuration;
+import org.gestern.gringotts.Gringotts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuously checks the cached balance of loaded vaults against their real contents, a few vaults per tick.
+ * <p>
+ * Vaults are visited in rounds, in order of priority: vaults whose cached balance was adjusted from inventory events
+ * come first, then the ones verified longest ago. Instead of sorting, a round first walks the registry's snapshot of
+ * all vaults with a cursor and files each vault that needs verification into a bucket by how many verification
+ * intervals ago it was last verified, then verifies the buckets in order. Both steps share the time budget of a tick,
+ * so that auditing never causes a lag spike no matter how many vaults there are. Vaults in unloaded chunks and vaults
+ * verified within the verification interval are skipped.
+ * <p>
+ * Only used from the main thread.
+ */
+public class VaultAuditor extends BukkitRunnable {
+    /**
+     * Minimum time between the starts of two rounds, so that few vaults are not rescanned every tick.
+     */
+    private static final long MIN_ROUND_MILLIS = 1000;
+
+    /**
+     * Buckets of a round: dirty vaults, then vaults last verified at least 8, 4, 2 and 1 verification intervals ago.
+     */
+    private static final int BUCKETS = 5;
+
+    private final List<AccountChest>[] buckets = newBuckets();
+    private List<AccountChest>         round   = List.of();
+    /**
+     * Bucket being verified, or -1 while the round's vaults are still being filed into buckets.
+     */
+    private int                        bucket  = BUCKETS;
+    private int                        cursor;
+    private long                       roundStarted;
+    private long                       audited;
+    private long                       discrepancies;
+    private long                       roundDiscrepancies;
+
+    @Override
+    public void run() {
+        long start  = System.nanoTime();
+        long budget = TimeUnit.MICROSECONDS.toNanos(Configuration.CONF.vaultAuditBudget);
+
+        if (bucket >= BUCKETS && !startRound()) {
+            return;
+        }
+
+        long interval  = Math.max(TimeUnit.SECONDS.toMillis(Configuration.CONF.vaultVerificationInterval), 1);
+        long now       = System.currentTimeMillis();
+        long dueBefore = now - interval;
+
+        while (bucket < BUCKETS && System.nanoTime() - start < budget) {
+            if (bucket < 0) {
+                file(now, interval);
+
+                continue;
+            }
+
+            List<AccountChest> chests = buckets[bucket];
+
+            if (cursor >= chests.size()) {
+                chests.clear();
+                bucket++;
+                cursor = 0;
+
+                continue;
+            }
+
+            AccountChest chest = chests.get(cursor++);
+
+            // may have been verified or unloaded since it was filed
+            if (!chest.isChestLoaded() || (!chest.isDirty() && chest.getLastVerified() > dueBefore)) {
+                continue;
+            }
+
+            audit(chest);
+        }
+
+        if (bucket >= BUCKETS && roundDiscrepancies > 0) {
+            Gringotts.instance.getLogger().info("Vault audit corrected " + roundDiscrepancies + " of "
+                    + round.size() + " vaults.");
+        }
+    }
+
+    /**
+     * Number of vaults verified since the server started.
+     *
+     * @return number of verified vaults
+     */
+    public long getAudited() {
+        return audited;
+    }
+
+    /**
+     * Number of verified vaults whose cached balance differed from their real contents.
+     *
+     * @return number of corrected discrepancies
+     */
+    public long getDiscrepancies() {
+        return discrepancies;
+    }
+
+    private boolean startRound() {
+        long now = System.currentTimeMillis();
+
+        if (now - roundStarted < MIN_ROUND_MILLIS) {
+            return false;
+        }
+
+        // the registry hands out unmodifiable snapshots, so it can be walked across ticks while vaults change
+        Collection<AccountChest> all    = Gringotts.instance.getDao().retrieveChests();
+        List<AccountChest>       chests = all instanceof List<AccountChest> snapshot ? snapshot : List.copyOf(all);
+
+        round = chests;
+        bucket = -1;
+        cursor = 0;
+        roundStarted = now;
+        roundDiscrepancies = 0;
+
+        return !chests.isEmpty();
+    }
+
+    /**
+     * File the next vault of the round into its bucket, and start verifying once all are filed.
+     */
+    private void file(long now, long interval) {
+        if (cursor >= round.size()) {
+            bucket = 0;
+            cursor = 0;
+
+            return;
+        }
+
+        AccountChest chest = round.get(cursor++);
+
+        if (!chest.isChestLoaded()) {
+            return;
+        }
+
+        if (chest.isDirty()) {
+            buckets[0].add(chest);
+
+            return;
+        }
+
+        long intervals = (now - chest.getLastVerified()) / interval;
+
+        if (intervals < 1) {
+            return;
+        }
+
+        // 0 for one interval, 1 for two or three, 2 for four to seven, 3 for eight or more
+        int doublings = Math.min(63 - Long.numberOfLeadingZeros(intervals), BUCKETS - 2);
+
+        buckets[BUCKETS - 1 - doublings].add(chest);
+    }
+
+    private void audit(AccountChest chest) {
+        long cached = chest.getCachedBalance();
+        long real   = chest.verifyBalance();
+
+        audited++;
+
+        if (real != cached) {
+            discrepancies++;
+            roundDiscrepancies++;
+
+            Gringotts.instance.getLogger().fine("Corrected cached balance of vault " + chest + " from " + cached
+                    + " to " + real);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AccountChest>[] newBuckets() {
+        List<AccountChest>[] buckets = new List[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+
+        return buckets;
+    }
+}
@@ -0,0 +1,64 @@
+package org.gestern.gringotts.maintenance;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.gestern.gringotts.AccountChest;
+import org.gestern.gringotts.AccountInventory;
+import org.gestern.gringotts.Configuration;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Merges small denomination items in crowded vaults into larger ones, a few vaults per tick.
+ * Withdrawals pay back change in small denominations, so vaults slowly fill up with many small stacks that make
+ * every scan slower and run out of space early. Consolidation never changes a vault's value, and leaves vaults that
+ * a player is looking at alone.
+ * <p>
+ * Only used from the main thread.
+ */
+public class VaultConsolidator extends BukkitRunnable {
+
+    private final Set<AccountChest> queue = new LinkedHashSet<>();
+
+    /**
+     * Queue a vault for consolidation if its slot usage is above the configured threshold.
+     *
+     * @param chest     the vault
+     * @param usedSlots number of slots in use
+     * @param size      number of slots of the vault
+     */
+    public void check(AccountChest chest, int usedSlots, int size) {
+        if (size > 0 && usedSlots > size * Configuration.CONF.vaultConsolidationThreshold) {
+            queue.add(chest);
+        }
+    }
+
+    @Override
+    public void run() {
+        Iterator<AccountChest> it = queue.iterator();
+
+        for (int i = 0; i < Configuration.CONF.vaultConsolidationPerTick && it.hasNext(); i++) {
+            AccountChest chest = it.next();
+            it.remove();
+
+            if (!chest.isChestLoaded() || chest.notValid()) {
+                continue;
+            }
+
+            InventoryHolder holder = chest.chest();
+
+            if (holder == null) {
+                continue;
+            }
+
+            Inventory inventory = holder.getInventory();
+
+            if (inventory.getViewers().isEmpty()) {
+                new AccountInventory(inventory).consolidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.gestern.gringotts.maintenance;
+
+import io.papermc.lib.PaperLib;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.gestern.gringotts.Gringotts;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Runs work on vaults in unloaded chunks without loading those chunks synchronously.
+ * <p>
+ * Work is grouped by chunk, so each chunk is requested once no matter how many vaults it holds. Chunks are
+ * requested through the asynchronous chunk API, at most a fixed number at a time, and the work for a chunk runs on
+ * the main thread once it has arrived. Chunks that are already loaded are handled right away.
+ * <p>
+ * Only used from the main thread.
+ */
+public class VaultReconciler {
+    private final int                       maxInFlight;
+    private final Map<ChunkKey, List<Task>> waiting = new LinkedHashMap<>();
+    private int                             inFlight;
+
+    /**
+     * @param maxInFlight maximum number of chunks requested at the same time
+     */
+    public VaultReconciler(int maxInFlight) {
+        this.maxInFlight = Math.max(maxInFlight, 1);
+    }
+
+    /**
+     * Run an action on the main thread once a chunk is loaded. The chunk is not generated if it does not exist, the
+     * action is skipped then, since touching blocks of the chunk would generate it synchronously.
+     *
+     * @param world  world of the chunk
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     * @param action action to run
+     * @return completed once the action ran or was skipped
+     */
+    public CompletableFuture<Void> whenLoaded(World world, int chunkX, int chunkZ, Runnable action) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Task                    task = new Task(action, done);
+
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            task.run();
+
+            return done;
+        }
+
+        waiting.computeIfAbsent(new ChunkKey(world.getUID(), chunkX, chunkZ), key -> new ArrayList<>()).add(task);
+        requestChunks();
+
+        return done;
+    }
+
+    /**
+     * Number of chunks waiting to be requested or arriving.
+     *
+     * @return number of outstanding chunks
+     */
+    public int pending() {
+        return waiting.size() + inFlight;
+    }
+
+    private void requestChunks() {
+        Iterator<Map.Entry<ChunkKey, List<Task>>> it = waiting.entrySet().iterator();
+
+        while (inFlight < maxInFlight && it.hasNext()) {
+            Map.Entry<ChunkKey, List<Task>> next = it.next();
+            it.remove();
+
+            ChunkKey   key   = next.getKey();
+            List<Task> tasks = next.getValue();
+            World      world = Bukkit.getWorld(key.world());
+
+            if (world == null) {
+                tasks.forEach(Task::skip);
+
+                continue;
+            }
+
+            inFlight++;
+
+            PaperLib.getChunkAtAsync(world, key.x(), key.z(), false).whenComplete((chunk, error) -> {
+                if (error != null) {
+                    Gringotts.instance.getLogger().log(Level.WARNING,
+                            "Could not load chunk " + key.x() + "," + key.z() + " of " + world.getName(), error);
+                }
+
+                Runnable arrived = () -> {
+                    inFlight--;
+
+                    // the chunk was not generated or could not be loaded
+                    if (chunk == null) {
+                        tasks.forEach(Task::skip);
+                    } else {
+                        tasks.forEach(Task::run);
+                    }
+
+                    requestChunks();
+                };
+
+                if (Bukkit.isPrimaryThread()) {
+                    arrived.run();
+                } else {
+                    Bukkit.getScheduler().runTask(Gringotts.instance, arrived);
+                }
+            });
+        }
+    }
+
+    private record ChunkKey(UUID world, int x, int z) {
+    }
+
+    private record Task(Runnable action, CompletableFuture<Void> done) {
+        void run() {
+            try {
+                action.run();
+                done.complete(null);
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }
+
+        void skip() {
+            done.complete(null);
+        }
+    }
+}
@@ -45,13 +45,13 @@ public class PendingOperationManager {
             }
 
             pendingOperations.remove(operation);
-            Gringotts.instance.getDatabase().delete(operation);
+            Gringotts.instance.getStorageExecutor().write(() -> Gringotts.instance.getDatabase().delete(operation));
         }
 
     }
 
     public void registerNewOperation(EBeanPendingOperation op) {
-        Gringotts.instance.getDatabase().save(op);
+        Gringotts.instance.getStorageExecutor().write(() -> Gringotts.instance.getDatabase().save(op));
         pendingOperations.add(op);
     }
 
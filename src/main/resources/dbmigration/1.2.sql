@@ -0,0 +1,9 @@
+-- apply changes
+create table gringotts_bank_member (
+  id                            integer not null,
+  bank                          varchar(255) not null,
+  member                        varchar(255) not null,
+  owner                         integer not null,
+  constraint uq_gringotts_bank_member_bank_member unique (bank,member),
+  constraint pk_gringotts_bank_member primary key (id)
+);
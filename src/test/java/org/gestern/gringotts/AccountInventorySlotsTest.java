@@ -0,0 +1,135 @@
+package org.gestern.gringotts;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountInventorySlotsTest {
+    private static final int EMPTY = -1;
+    private static final int OTHER = -2;
+
+    /**
+     * Emerald blocks, emeralds and nuggets worth 900, 100 and 1 cents.
+     */
+    private static final long[] VALUES    = {900, 100, 1};
+    private static final int[]  MAX_STACK = {64, 64, 64};
+
+    private static AccountInventory.Slots slots(int[] denominations, int[] amounts) {
+        return new AccountInventory.Slots(VALUES, MAX_STACK, denominations, amounts);
+    }
+
+    @Test
+    public void readsValue() {
+        AccountInventory.Slots slots = slots(new int[]{0, 1, EMPTY, OTHER, 1}, new int[]{2, 3, 0, 5, 4});
+
+        assertEquals(2 * 900 + 7 * 100, slots.value());
+    }
+
+    @Test
+    public void addsInFewestItems() {
+        AccountInventory.Slots slots = slots(new int[]{EMPTY, EMPTY, EMPTY, EMPTY}, new int[4]);
+
+        assertEquals(1_905, slots.add(1_905));
+        assertEquals(2, slots.amount(0));
+        assertEquals(1, slots.amount(1));
+        assertEquals(5, slots.amount(2));
+        assertEquals(0, slots.amount(3));
+    }
+
+    @Test
+    public void topsUpStacksBeforeUsingEmptySlots() {
+        AccountInventory.Slots slots = slots(new int[]{EMPTY, 1, OTHER}, new int[]{0, 60, 1});
+
+        assertEquals(400, slots.add(400));
+        assertEquals(64, slots.amount(1));
+        assertEquals(0, slots.amount(0));
+    }
+
+    @Test
+    public void fillsWhatFitsWhenFull() {
+        AccountInventory.Slots slots = slots(new int[]{0, OTHER}, new int[]{63, 1});
+
+        // only one more block fits, the emeralds and nuggets have no slot left
+        assertEquals(900, slots.add(1_905));
+        assertEquals(64, slots.amount(0));
+    }
+
+    @Test
+    public void fallsBackToSmallerItemsWhenLargerDoNotFit() {
+        AccountInventory.Slots slots = slots(new int[]{1, 2}, new int[]{10, 1});
+
+        // no slot is left for a block, so the emeralds are topped up instead
+        assertEquals(900, slots.add(900));
+        assertEquals(19, slots.amount(0));
+    }
+
+    @Test
+    public void removesWholeItemsLargestFirst() {
+        AccountInventory.Slots slots = slots(new int[]{0, 1, 2}, new int[]{3, 5, 20});
+
+        assertEquals(1_105, slots.remove(1_105));
+        assertEquals(2, slots.amount(0));
+        assertEquals(3, slots.amount(1));
+        assertEquals(15, slots.amount(2));
+        assertEquals(3 * 900 + 5 * 100 + 20 - 1_105, slots.value());
+    }
+
+    @Test
+    public void breaksSmallestSufficientItemForChange() {
+        AccountInventory.Slots slots = slots(new int[]{0, 1, EMPTY}, new int[]{1, 1, 0});
+
+        // the emerald is broken rather than the block, and 50 nuggets come back as change in the freed slot
+        assertEquals(50, slots.remove(50));
+        assertEquals(1, slots.amount(0));
+        assertEquals(50, slots.amount(1));
+        assertEquals(0, slots.amount(2));
+        assertEquals(900 + 50, slots.value());
+    }
+
+    @Test
+    public void removesMoreWhenChangeDoesNotFit() {
+        AccountInventory.Slots slots = slots(new int[]{1, OTHER}, new int[]{2, 1});
+
+        // the broken emerald's slot still holds the other one, so the change has nowhere to go
+        assertEquals(100, slots.remove(50));
+        assertEquals(1, slots.amount(0));
+        assertEquals(100, slots.value());
+    }
+
+    @Test
+    public void removesAtMostWhatIsHeld() {
+        AccountInventory.Slots slots = slots(new int[]{1, 2}, new int[]{1, 5});
+
+        assertEquals(105, slots.remove(500));
+        assertEquals(0, slots.value());
+    }
+
+    @Test
+    public void countsUsedSlots() {
+        AccountInventory.Slots slots = slots(new int[]{0, 1, EMPTY, OTHER, 1}, new int[]{2, 3, 0, 5, 4});
+
+        assertEquals(4, slots.usedSlots());
+        assertEquals(5, slots.size());
+    }
+
+    @Test
+    public void consolidatesIntoFewerSlots() {
+        AccountInventory.Slots slots = slots(new int[]{1, 1, 2, 2, OTHER}, new int[]{5, 4, 64, 36, 1});
+
+        assertTrue(slots.consolidate());
+        assertEquals(900 + 100, slots.value());
+        assertEquals(1, slots.count(0));
+        assertEquals(1, slots.count(1));
+        assertEquals(0, slots.count(2));
+        assertEquals(3, slots.usedSlots());
+    }
+
+    @Test
+    public void keepsConsolidatedSlotsWhenNothingIsGained() {
+        AccountInventory.Slots slots = slots(new int[]{0, 1, OTHER}, new int[]{1, 1, 1});
+
+        assertFalse(slots.consolidate());
+    }
+}
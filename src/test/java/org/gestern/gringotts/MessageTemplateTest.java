@@ -0,0 +1,112 @@
+package org.gestern.gringotts;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MessageTemplateTest {
+
+    @Test
+    public void rendersTextWithoutPlaceholdersAsIs() {
+        String          text     = "Vault created.";
+        MessageTemplate template = MessageTemplate.compile(text);
+
+        assertSame(text, template.render("%player", "Alice"));
+        assertEquals("", MessageTemplate.compile("").render());
+    }
+
+    @Test
+    public void replacesPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("Sent %value to %player.");
+
+        assertEquals("Sent 5 Emeralds to Alice.", template.render("%value", "5 Emeralds", "%player", "Alice"));
+    }
+
+    @Test
+    public void replacesRepeatedPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("%player paid %player");
+
+        assertEquals("Alice paid Alice", template.render("%player", "Alice"));
+    }
+
+    @Test
+    public void replacesAdjacentPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("%value%currency");
+
+        assertEquals("5Emeralds", template.render("%value", "5", "%currency", "Emeralds"));
+    }
+
+    @Test
+    public void replacesPlaceholdersAtTheEdges() {
+        MessageTemplate template = MessageTemplate.compile("%player");
+
+        assertEquals("Alice", template.render("%player", "Alice"));
+    }
+
+    @Test
+    public void endsPlaceholdersAtOtherCharacters() {
+        MessageTemplate template = MessageTemplate.compile("%player's balance: %balance.");
+
+        assertEquals("Alice's balance: 5.", template.render("%player", "Alice", "%balance", "5"));
+    }
+
+    @Test
+    public void keepsStrayPercentSigns() {
+        assertEquals("100% of Alice", MessageTemplate.compile("100% of %player").render("%player", "Alice"));
+        assertEquals("Tax: 5%", MessageTemplate.compile("Tax: %tax%").render("%tax", "5"));
+        assertEquals("%% %", MessageTemplate.compile("%% %").render("%player", "Alice"));
+    }
+
+    @Test
+    public void keepsPlaceholdersWithoutValues() {
+        MessageTemplate template = MessageTemplate.compile("%player has %balance");
+
+        assertEquals("Alice has %balance", template.render("%player", "Alice"));
+        assertEquals("%player has %balance", template.render());
+    }
+
+    @Test
+    public void ignoresUnmatchedTags() {
+        MessageTemplate template = MessageTemplate.compile("Hello %player");
+
+        assertEquals("Hello Alice", template.render("%value", "5", "%player", "Alice", "%unused", "x"));
+    }
+
+    @Test
+    public void matchesWholePlaceholdersOnly() {
+        MessageTemplate template = MessageTemplate.compile("%players and %player");
+
+        assertEquals("%players and Alice", template.render("%player", "Alice"));
+    }
+
+    @Test
+    public void ignoresTagWithoutValue() {
+        MessageTemplate template = MessageTemplate.compile("Hello %player");
+
+        assertEquals("Hello %player", template.render("%player"));
+    }
+
+    @Test
+    public void doesNotRenderPlaceholdersInValues() {
+        MessageTemplate template = MessageTemplate.compile("%player sent %value");
+
+        // a value that looks like a tag is put in literally, not replaced again
+        assertEquals("%value sent 5", template.render("%player", "%value", "%value", "5"));
+        assertEquals("%player sent %player", template.render("%player", "%player", "%value", "%player"));
+    }
+
+    @Test
+    public void usesFirstValueOfRepeatedTags() {
+        MessageTemplate template = MessageTemplate.compile("Hello %player");
+
+        assertEquals("Hello Alice", template.render("%player", "Alice", "%player", "Bob"));
+    }
+
+    @Test
+    public void keepsOriginalText() {
+        String text = "Sent %value to %player.";
+
+        assertEquals(text, MessageTemplate.compile(text).toString());
+    }
+}
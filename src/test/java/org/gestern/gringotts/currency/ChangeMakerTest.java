@@ -0,0 +1,161 @@
+package org.gestern.gringotts.currency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeMakerTest {
+
+    @Test
+    public void detectsCanonicalSets() {
+        assertTrue(new ChangeMaker(new long[]{100, 25, 10, 5, 1}).isCanonical());
+        assertTrue(new ChangeMaker(new long[]{81, 9, 1}).isCanonical());
+        assertTrue(new ChangeMaker(new long[]{1}).isCanonical());
+    }
+
+    @Test
+    public void detectsNonCanonicalSets() {
+        assertFalse(new ChangeMaker(new long[]{25, 15, 1}).isCanonical());
+        assertFalse(new ChangeMaker(new long[]{4, 3, 1}).isCanonical());
+        // without a unit of one, greedy may miss amounts that can be paid
+        assertFalse(new ChangeMaker(new long[]{5, 3}).isCanonical());
+    }
+
+    @Test
+    public void splitsGreedilyForCanonicalSets() {
+        ChangeMaker maker = new ChangeMaker(new long[]{100, 25, 10, 5, 1});
+        long[] counts = new long[5];
+
+        assertEquals(0, maker.split(293, counts));
+        assertArrayEquals(new long[]{2, 3, 1, 1, 3}, counts);
+    }
+
+    @Test
+    public void splitsOptimallyForNonCanonicalSets() {
+        ChangeMaker maker = new ChangeMaker(new long[]{25, 15, 1});
+        long[] counts = new long[3];
+
+        assertEquals(0, maker.split(30, counts));
+        assertArrayEquals(new long[]{0, 2, 0}, counts);
+    }
+
+    @Test
+    public void returnsWhatCannotBePaid() {
+        ChangeMaker maker = new ChangeMaker(new long[]{5, 3});
+        long[] counts = new long[2];
+
+        assertEquals(1, maker.split(7, counts));
+        assertArrayEquals(new long[]{0, 2}, counts);
+
+        assertEquals(2, maker.split(2, counts));
+        assertArrayEquals(new long[]{0, 0}, counts);
+
+        assertEquals(0, maker.split(0, counts));
+        assertEquals(0, maker.split(-4, counts));
+    }
+
+    @Test
+    public void keepsRemainderBelowCommonDivisor() {
+        ChangeMaker maker = new ChangeMaker(new long[]{500, 300});
+        long[] counts = new long[2];
+
+        assertEquals(99, maker.split(899, counts));
+        assertArrayEquals(new long[]{1, 1}, counts);
+    }
+
+    @Test
+    public void matchesReferenceSplits() {
+        Random random = new Random(42);
+
+        for (int set = 0; set < 200; set++) {
+            long[] values = randomDenominations(random);
+            ChangeMaker maker = new ChangeMaker(values);
+            long[] reference = reference(values, 2_000);
+            long[] counts = new long[values.length];
+
+            for (int amount = 0; amount < reference.length; amount++) {
+                long rest = maker.split(amount, counts);
+                String context = Arrays.toString(values) + " amount " + amount;
+
+                assertEquals(amount, paid(values, counts) + rest, context);
+                assertEquals(paidReference(reference, amount), amount - rest, context);
+                assertEquals(reference[(int) (amount - rest)], items(counts), context);
+            }
+        }
+    }
+
+    @Test
+    public void splitsAmountsBeyondTheTable() {
+        long[] values = {25, 15, 1};
+        ChangeMaker maker = new ChangeMaker(values);
+        long[] counts = new long[3];
+        long amount = 10_000_005L;
+
+        assertEquals(0, maker.split(amount, counts));
+        assertEquals(amount, paid(values, counts));
+        // 25 * 399_999 + 15 * 2
+        assertArrayEquals(new long[]{399_999, 2, 0}, counts);
+    }
+
+    private static long[] randomDenominations(Random random) {
+        int size = 1 + random.nextInt(4);
+        return random.longs(size, 1, 60).distinct().boxed()
+                .sorted((a, b) -> Long.compare(b, a))
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    /**
+     * Fewest items for every amount below the limit, or -1 if the amount cannot be paid exactly.
+     */
+    private static long[] reference(long[] values, int limit) {
+        long[] items = new long[limit];
+
+        Arrays.fill(items, -1);
+        items[0] = 0;
+
+        for (int x = 1; x < limit; x++) {
+            for (long value : values) {
+                if (value <= x && items[(int) (x - value)] >= 0
+                        && (items[x] < 0 || items[(int) (x - value)] + 1 < items[x])) {
+                    items[x] = items[(int) (x - value)] + 1;
+                }
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Largest amount up to the given one that can be paid exactly.
+     */
+    private static long paidReference(long[] reference, int amount) {
+        int x = amount;
+
+        while (reference[x] < 0) {
+            x--;
+        }
+
+        return x;
+    }
+
+    private static long paid(long[] values, long[] counts) {
+        long sum = 0;
+
+        for (int d = 0; d < values.length; d++) {
+            sum += values[d] * counts[d];
+        }
+
+        return sum;
+    }
+
+    private static long items(long[] counts) {
+        return Arrays.stream(counts).sum();
+    }
+}
@@ -0,0 +1,130 @@
+package org.gestern.gringotts.currency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class CurrencyFormatterTest {
+
+    private static CurrencyFormatter formatter(int digits) {
+        GringottsCurrency currency = new GringottsCurrency("Emerald", "Emeralds", digits, false);
+
+        currency.compile();
+
+        return currency.getFormatter();
+    }
+
+    private static void assertFormatted(CurrencyFormatter formatter, double value) {
+        String expected = String.format(formatter.getPattern(), value, value == 1.0 ? "Emerald" : "Emeralds");
+
+        assertEquals(expected, formatter.format(value), "formatting " + value);
+    }
+
+    @Test
+    public void buildsPatternFromDigits() {
+        assertEquals("%.2f %s", formatter(2).getPattern());
+        assertEquals("%.0f %s", formatter(0).getPattern());
+    }
+
+    @Test
+    public void roundsLikeFormatter() {
+        CurrencyFormatter formatter = formatter(2);
+
+        for (double value : new double[]{0, 0.001, 0.004, 0.005, 0.006, 0.015, 0.125, 0.135, 1.005, 1.015, 2.675,
+                10.345, 99.995, 0.1 + 0.2, 1234.5678}) {
+            assertFormatted(formatter, value);
+            assertFormatted(formatter, -value);
+        }
+    }
+
+    @Test
+    public void roundsWithoutFractionalDigits() {
+        CurrencyFormatter formatter = formatter(0);
+
+        for (double value : new double[]{0, 0.4, 0.5, 1.5, 2.5, 2.4999, 1234567.5}) {
+            assertFormatted(formatter, value);
+            assertFormatted(formatter, -value);
+        }
+    }
+
+    @Test
+    public void roundsWithMoreFractionalDigits() {
+        CurrencyFormatter formatter = formatter(3);
+
+        for (double value : new double[]{0.0005, 0.0015, 1.2345, 9.9995, 123.456789}) {
+            assertFormatted(formatter, value);
+            assertFormatted(formatter, -value);
+        }
+    }
+
+    @Test
+    public void keepsSignOfNegativeValuesRoundedToZero() {
+        CurrencyFormatter formatter = formatter(2);
+
+        assertFormatted(formatter, -0.001);
+        assertFormatted(formatter, -0.0);
+    }
+
+    @Test
+    public void writesLargeValuesWithoutGrouping() {
+        CurrencyFormatter formatter = formatter(2);
+
+        for (double value : new double[]{1000, 1234567.89, 9_999_999_999.99, 1e10, 1e12, 1e15, 123456789012345.67,
+                Long.MAX_VALUE / 100.0, Double.MAX_VALUE}) {
+            assertFormatted(formatter, value);
+            assertFormatted(formatter, -value);
+        }
+    }
+
+    @Test
+    public void handlesNonFiniteValues() {
+        CurrencyFormatter formatter = formatter(2);
+
+        assertFormatted(formatter, Double.NaN);
+        assertFormatted(formatter, Double.POSITIVE_INFINITY);
+        assertFormatted(formatter, Double.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    public void namesOnlyExactlyOneInSingular() {
+        CurrencyFormatter formatter = formatter(2);
+
+        // both render as 1.00, but only the exact value is singular, also when cached
+        assertFormatted(formatter, 1.0);
+        assertFormatted(formatter, 1.001);
+        assertFormatted(formatter, 1.0);
+        assertFormatted(formatter, 0.999);
+    }
+
+    @Test
+    public void reusesCachedText() {
+        CurrencyFormatter formatter = formatter(2);
+        String            first     = formatter.format(42.5);
+
+        assertSame(first, formatter.format(42.5));
+        assertEquals(first, formatter.format(42.50000001));
+    }
+
+    @Test
+    public void matchesFormatterForRandomValues() {
+        Random random = new Random(42);
+
+        for (int digits = 0; digits <= 3; digits++) {
+            CurrencyFormatter formatter = formatter(digits);
+
+            for (int i = 0; i < 20_000; i++) {
+                double value = switch (i % 3) {
+                    // short decimals, which often sit on rounding boundaries
+                    case 0 -> Math.round(random.nextDouble() * 1e7) / 1000.0;
+                    case 1 -> random.nextDouble() * 1000;
+                    default -> (random.nextDouble() - 0.5) * 1e11;
+                };
+
+                assertFormatted(formatter, value);
+            }
+        }
+    }
+}
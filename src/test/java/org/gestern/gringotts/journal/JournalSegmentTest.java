@@ -0,0 +1,163 @@
+package org.gestern.gringotts.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JournalSegmentTest {
+    private static final String[] NAMES = {"player:a", "player:b", "player:c"};
+
+    @TempDir
+    Path dir;
+
+    private static List<JournalEntry> history(JournalSegment segment, int account, int limit) {
+        List<JournalEntry> entries = new ArrayList<>();
+
+        segment.readBackwards(account, limit, entries, id -> NAMES[id]);
+
+        return entries;
+    }
+
+    @Test
+    public void readsRecordsBackNewestFirst() throws IOException {
+        JournalSegment segment = JournalSegment.create(dir, 0, 8);
+
+        segment.append(1_000, 0, 1, 250, 5);
+        segment.append(2_000, 1, 2, 100, 0);
+        segment.append(3_000, 2, 0, 75, 1);
+
+        List<JournalEntry> entries = history(segment, 0, 10);
+
+        assertEquals(2, entries.size());
+        assertEquals(new JournalEntry(3_000, "player:c", "player:a", 75, 1), entries.get(0));
+        assertEquals(new JournalEntry(1_000, "player:a", "player:b", 250, 5), entries.get(1));
+
+        assertEquals(1, history(segment, 1, 1).size());
+        assertEquals(2_000, history(segment, 1, 1).get(0).timestamp());
+    }
+
+    @Test
+    public void skipsAccountsNotInTheIndex() throws IOException {
+        JournalSegment segment = JournalSegment.create(dir, 0, 8);
+
+        segment.append(1_000, 0, 1, 250, 0);
+
+        assertTrue(segment.mentions(0));
+        assertFalse(segment.mentions(2));
+
+        segment.seal();
+
+        assertTrue(segment.mentions(1));
+        assertFalse(segment.mentions(2));
+        assertTrue(history(segment, 2, 10).isEmpty());
+    }
+
+    @Test
+    public void fillsUpToCapacity() throws IOException {
+        JournalSegment segment = JournalSegment.create(dir, 0, 2);
+
+        segment.append(1_000, 0, 1, 1, 0);
+        assertFalse(segment.isFull());
+
+        segment.append(2_000, 0, 1, 2, 0);
+        assertTrue(segment.isFull());
+    }
+
+    @Test
+    public void opensSealedSegment() throws IOException {
+        JournalSegment written = JournalSegment.create(dir, 3, 8);
+
+        written.append(1_000, 0, 1, 250, 5);
+        written.seal();
+
+        JournalSegment read = JournalSegment.open(dir, 3);
+
+        assertEquals(3, read.number);
+        assertEquals(List.of(new JournalEntry(1_000, "player:a", "player:b", 250, 5)), history(read, 1, 10));
+        assertFalse(read.mentions(2));
+    }
+
+    @Test
+    public void rebuildsMissingIndex() throws IOException {
+        JournalSegment written = JournalSegment.create(dir, 0, 8);
+
+        written.append(1_000, 0, 1, 250, 5);
+
+        JournalSegment read = JournalSegment.open(dir, 0);
+
+        assertTrue(read.mentions(1));
+        assertTrue(Files.exists(dir.resolve("segment-000000.dat.idx")));
+    }
+
+    @Test
+    public void recoversRecordsMissingFromTheHeader() throws IOException {
+        JournalSegment written = JournalSegment.create(dir, 0, 8);
+
+        written.append(1_000, 0, 1, 250, 5);
+        written.append(2_000, 1, 2, 100, 0);
+
+        // as if the writer stopped after writing the second record but before counting it
+        writeHeaderCount(1);
+
+        JournalSegment read = JournalSegment.open(dir, 0);
+
+        assertEquals(2, history(read, 1, 10).size());
+        assertTrue(read.mentions(2));
+    }
+
+    @Test
+    public void resumesAfterTheLastRecord() throws IOException {
+        JournalSegment written = JournalSegment.create(dir, 0, 3);
+
+        written.append(1_000, 0, 1, 250, 5);
+        written.seal();
+
+        JournalSegment resumed = JournalSegment.resume(dir, 0);
+
+        assertFalse(resumed.isFull());
+        assertFalse(Files.exists(dir.resolve("segment-000000.dat.idx")));
+        assertTrue(resumed.mentions(0));
+
+        resumed.append(2_000, 1, 2, 100, 0);
+        resumed.append(3_000, 2, 0, 75, 1);
+
+        assertTrue(resumed.isFull());
+
+        resumed.seal();
+
+        JournalSegment read = JournalSegment.open(dir, 0);
+
+        assertEquals(2, history(read, 0, 10).size());
+        assertEquals(2, history(read, 2, 10).size());
+        assertTrue(read.mentions(2));
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Files.write(JournalSegment.fileName(dir, 0), new byte[64]);
+
+        assertThrows(IOException.class, () -> JournalSegment.open(dir, 0));
+        assertThrows(IOException.class, () -> JournalSegment.resume(dir, 0));
+    }
+
+    private void writeHeaderCount(int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(JournalSegment.fileName(dir, 0), StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(0, count);
+
+            channel.write(header, 8);
+        }
+    }
+}